@@ -3,24 +3,107 @@
 // Status: FIXED & OPTIMIZED
 import java.io.*;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.text.SimpleDateFormat;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ==================== MenuAttributes.java ====================
+/**
+ * Compact, fixed vocabularies for menu item attributes. Each item keeps a
+ * small enum reference instead of its own String copy. Values outside the
+ * known set map to OTHER, and the item keeps the admin's text as an
+ * interned label, so one copy is shared by every item that uses it.
+ */
+interface AttributeValue {
+    String getLabel();
+
+    // Matches a label or constant name, ignoring case; unknown text gives the fallback
+    static <E extends Enum<E> & AttributeValue> E parse(Class<E> type, String text, E fallback) {
+        if (text == null) return fallback;
+        String t = text.trim();
+        for (E value : type.getEnumConstants()) {
+            if (value != fallback
+                    && (value.getLabel().equalsIgnoreCase(t) || value.name().equalsIgnoreCase(t))) {
+                return value;
+            }
+        }
+        return fallback;
+    }
+
+    // Only unknown values need their own label; known ones return null (nothing to store)
+    static String customLabel(Enum<?> parsed, Enum<?> fallback, String text) {
+        return parsed == fallback && text != null ? text.trim().intern() : null;
+    }
+
+    static String intern(String s) {
+        return s == null ? null : s.intern();
+    }
+}
+
+enum ItemCategory implements AttributeValue {
+    FOOD("Food"), BEVERAGE("Beverage");
+
+    private final String label;
+    ItemCategory(String label) { this.label = label; }
+    public String getLabel() { return label; }
+}
+
+enum DietaryType implements AttributeValue {
+    VEG("VEG"), NON_VEG("NON-VEG"), VEGAN("VEGAN"), OTHER("OTHER");
+
+    private final String label;
+    DietaryType(String label) { this.label = label; }
+    public String getLabel() { return label; }
+}
+
+enum Cuisine implements AttributeValue {
+    INDIAN("INDIAN"), CHINESE("CHINESE"), CONTINENTAL("CONTINENTAL"), ITALIAN("ITALIAN"), OTHER("OTHER");
+
+    private final String label;
+    Cuisine(String label) { this.label = label; }
+    public String getLabel() { return label; }
+}
+
+enum ServingSize implements AttributeValue {
+    SMALL("SMALL", 1.0), MEDIUM("MEDIUM", 1.25), LARGE("LARGE", 1.50), OTHER("OTHER", 1.0);
+
+    private final String label;
+    private final double priceMultiplier;
+    ServingSize(String label, double priceMultiplier) {
+        this.label = label;
+        this.priceMultiplier = priceMultiplier;
+    }
+    public String getLabel() { return label; }
+    public double getPriceMultiplier() { return priceMultiplier; }
+}
+
+enum Temperature implements AttributeValue {
+    HOT("HOT"), COLD("COLD"), ROOM("ROOM"), OTHER("OTHER");
+
+    private final String label;
+    Temperature(String label) { this.label = label; }
+    public String getLabel() { return label; }
+}
 
 // ==================== MenuEntry.java (Abstract Base Class) ====================
-abstract class MenuEntry implements Serializable {
+abstract class MenuEntry implements Serializable, Cloneable {
     private static final long serialVersionUID = 1L;
 
     private String itemName;
     private double basePrice;
-    private String category;
     private boolean isAvailable;
     private int popularity;
+    // Set by the till's InventoryManager; separate from isAvailable, which is the menu's own switch
+    private transient boolean soldOut;
 
-    public MenuEntry(String itemName, double basePrice, String category) {
+    // The category follows from the subclass, so it is no longer stored per item
+    public MenuEntry(String itemName, double basePrice) {
         this.itemName = itemName;
         this.basePrice = basePrice;
-        this.category = category;
         this.isAvailable = true;
         this.popularity = 0;
     }
@@ -33,9 +116,12 @@ abstract class MenuEntry implements Serializable {
         if (basePrice >= 0) this.basePrice = basePrice;
     }
 
-    public String getCategory() { return category; }
+    public abstract ItemCategory getCategoryType();
+    public String getCategory() { return getCategoryType().getLabel(); }
     public boolean isAvailable() { return isAvailable; }
     public void setAvailable(boolean available) { this.isAvailable = available; }
+    public boolean isSoldOut() { return soldOut; }
+    public void setSoldOut(boolean soldOut) { this.soldOut = soldOut; }
 
     public int getPopularity() { return popularity; }
     public void incrementPopularity() { this.popularity++; }
@@ -44,6 +130,15 @@ abstract class MenuEntry implements Serializable {
 
     public double calculatePrice() { return basePrice; }
 
+    // Shallow copy is enough: every field is a primitive, an enum or an immutable String
+    public MenuEntry copy() {
+        try {
+            return (MenuEntry) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @Override
     public String toString() {
         return itemName + " - ₹" + String.format("%.2f", basePrice);
@@ -54,115 +149,226 @@ abstract class MenuEntry implements Serializable {
 class FoodEntry extends MenuEntry {
     private static final long serialVersionUID = 1L;
 
-    private String dietaryType;
-    private String cuisine;
+    private DietaryType diet;
+    private String dietLabel;     // Only set when diet is OTHER
+    private Cuisine cuisineType;
+    private String cuisineLabel;  // Only set when cuisineType is OTHER
     private int preparationTime;
     private boolean isSpicy;
 
     public FoodEntry(String itemName, double basePrice, String dietaryType,
                      String cuisine, int preparationTime, boolean isSpicy) {
-        super(itemName, basePrice, "Food");
-        this.dietaryType = dietaryType;
-        this.cuisine = cuisine;
+        super(itemName, basePrice);
+        setDietaryType(dietaryType);
+        setCuisine(cuisine);
         this.preparationTime = preparationTime;
         this.isSpicy = isSpicy;
     }
 
+    private void setDietaryType(String text) {
+        this.diet = AttributeValue.parse(DietaryType.class, text, DietaryType.OTHER);
+        this.dietLabel = AttributeValue.customLabel(diet, DietaryType.OTHER, text);
+    }
+
+    private void setCuisine(String text) {
+        this.cuisineType = AttributeValue.parse(Cuisine.class, text, Cuisine.OTHER);
+        this.cuisineLabel = AttributeValue.customLabel(cuisineType, Cuisine.OTHER, text);
+    }
+
+    @Override
+    public ItemCategory getCategoryType() { return ItemCategory.FOOD; }
+
+    public String getDietaryType() { return dietLabel != null ? dietLabel : diet.getLabel(); }
+    public String getCuisine() { return cuisineLabel != null ? cuisineLabel : cuisineType.getLabel(); }
+    public int getPreparationTime() { return preparationTime; }
+    public boolean isSpicy() { return isSpicy; }
+
     // Method Overriding
     @Override
     public String getItemDetails() {
         String spicyIndicator = isSpicy ? " 🌶️" : "";
         return String.format("%s | %s | %s | Prep: %d min | ₹%.2f%s",
-                getItemName(), dietaryType, cuisine, preparationTime, getBasePrice(), spicyIndicator);
+                getItemName(), getDietaryType(), getCuisine(), preparationTime, getBasePrice(), spicyIndicator);
     }
 
     @Override
     public double calculatePrice() {
         // Example: Premium cuisine has 10% markup
-        if (cuisine.equalsIgnoreCase("CONTINENTAL")) {
+        if (cuisineType == Cuisine.CONTINENTAL) {
             return getBasePrice() * 1.10;
         }
         return getBasePrice();
     }
+
+    // Reads both the current layout and menus saved when these were plain Strings
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        preparationTime = fields.get("preparationTime", 0);
+        isSpicy = fields.get("isSpicy", false);
+        if (fields.defaulted("diet")) {
+            setDietaryType((String) fields.get("dietaryType", null));
+            setCuisine((String) fields.get("cuisine", null));
+        } else {
+            diet = (DietaryType) fields.get("diet", DietaryType.OTHER);
+            cuisineType = (Cuisine) fields.get("cuisineType", Cuisine.OTHER);
+            dietLabel = AttributeValue.intern((String) fields.get("dietLabel", null));
+            cuisineLabel = AttributeValue.intern((String) fields.get("cuisineLabel", null));
+        }
+    }
 }
 
 // ==================== BeverageEntry.java ====================
 class BeverageEntry extends MenuEntry {
     private static final long serialVersionUID = 1L;
 
-    private String servingSize;
+    private ServingSize size;
+    private String sizeLabel;         // Only set when size is OTHER
     private boolean isAlcoholic;
-    private String temperature;
+    private Temperature serveTemperature;
+    private String temperatureLabel;  // Only set when serveTemperature is OTHER
 
     public BeverageEntry(String itemName, double basePrice, String servingSize,
                         boolean isAlcoholic, String temperature) {
-        super(itemName, basePrice, "Beverage");
-        this.servingSize = servingSize;
+        super(itemName, basePrice);
+        setServingSize(servingSize);
         this.isAlcoholic = isAlcoholic;
-        this.temperature = temperature;
+        setTemperature(temperature);
+    }
+
+    private void setServingSize(String text) {
+        this.size = AttributeValue.parse(ServingSize.class, text, ServingSize.OTHER);
+        this.sizeLabel = AttributeValue.customLabel(size, ServingSize.OTHER, text);
     }
 
+    private void setTemperature(String text) {
+        this.serveTemperature = AttributeValue.parse(Temperature.class, text, Temperature.OTHER);
+        this.temperatureLabel = AttributeValue.customLabel(serveTemperature, Temperature.OTHER, text);
+    }
+
+    @Override
+    public ItemCategory getCategoryType() { return ItemCategory.BEVERAGE; }
+
+    public String getServingSize() { return sizeLabel != null ? sizeLabel : size.getLabel(); }
+    public String getTemperature() { return temperatureLabel != null ? temperatureLabel : serveTemperature.getLabel(); }
+    public boolean isAlcoholic() { return isAlcoholic; }
+
     @Override
     public String getItemDetails() {
         String type = isAlcoholic ? "Alcoholic" : "Non-Alcoholic";
         return String.format("%s | %s | %s | %s | ₹%.2f",
-                getItemName(), servingSize, type, temperature, calculatePrice());
+                getItemName(), getServingSize(), type, getTemperature(), calculatePrice());
     }
 
     @Override
     public double calculatePrice() {
-        double price = getBasePrice();
-        switch (servingSize.toUpperCase()) {
-            case "MEDIUM": return price * 1.25;
-            case "LARGE": return price * 1.50;
-            default: return price;
+        return getBasePrice() * size.getPriceMultiplier();
+    }
+
+    // Reads both the current layout and menus saved when these were plain Strings
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        isAlcoholic = fields.get("isAlcoholic", false);
+        if (fields.defaulted("size")) {
+            setServingSize((String) fields.get("servingSize", null));
+            setTemperature((String) fields.get("temperature", null));
+        } else {
+            size = (ServingSize) fields.get("size", ServingSize.OTHER);
+            serveTemperature = (Temperature) fields.get("serveTemperature", Temperature.OTHER);
+            sizeLabel = AttributeValue.intern((String) fields.get("sizeLabel", null));
+            temperatureLabel = AttributeValue.intern((String) fields.get("temperatureLabel", null));
+        }
+    }
+}
+
+// ==================== OrderStatus.java ====================
+/**
+ * Order lifecycle. Orders store only the one-byte code, and a status may
+ * only move forward: PENDING -> PREPARING -> SERVED -> BILLED. Any order
+ * that is not yet billed may instead be CANCELLED. BILLED and CANCELLED are final.
+ */
+enum OrderStatus {
+    PENDING((byte) 0), PREPARING((byte) 1), SERVED((byte) 2), BILLED((byte) 3), CANCELLED((byte) 4);
+
+    private static final OrderStatus[] BY_CODE = new OrderStatus[values().length];
+    static {
+        for (OrderStatus s : values()) BY_CODE[s.code] = s;
+    }
+
+    private final byte code;
+    OrderStatus(byte code) { this.code = code; }
+
+    public byte getCode() { return code; }
+
+    public static OrderStatus fromCode(byte code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : PENDING;
+    }
+
+    // Unknown text (e.g. from an old file) is treated as PENDING
+    public static OrderStatus parse(String text) {
+        for (OrderStatus s : values()) {
+            if (s.name().equalsIgnoreCase(text == null ? "" : text.trim())) return s;
+        }
+        return PENDING;
+    }
+
+    // Strict lookup for user input; unlike parse(), unknown names are an error
+    public static OrderStatus fromName(String text) {
+        for (OrderStatus s : values()) {
+            if (s.name().equalsIgnoreCase(text.trim())) return s;
         }
+        throw new IllegalArgumentException("unknown status: " + text.trim());
+    }
+
+    public boolean isFinal() {
+        return this == BILLED || this == CANCELLED;
+    }
+
+    public boolean canMoveTo(OrderStatus next) {
+        if (isFinal()) return next == this;
+        return next == CANCELLED || next.code >= code;
     }
 }
 
 // ==================== OrderTicket.java ====================
 class OrderTicket implements Serializable {
     private static final long serialVersionUID = 1L;
-    // Changed from private to protected so OrderManager can adjust it
-    private static int orderCounter = 1000;
 
     private int orderId;
     private int tableNumber;
     private ArrayList<MenuEntry> items;
-    private Date orderTime;
-    private String status;
+    private long orderTimestamp;
+    private byte statusCode;
     private String customerName;
     private String specialInstructions;
     private double discount;
 
-    public static synchronized int getNextOrderId() {
-        return ++orderCounter;
-    }
-
-    public OrderTicket(int tableNumber, String customerName) {
-        this.orderId = getNextOrderId();
+    // Order ids are handed out by the OrderManager that owns the order's id range
+    public OrderTicket(int orderId, int tableNumber, String customerName) {
+        this.orderId = orderId;
         this.tableNumber = tableNumber;
         this.customerName = customerName;
         this.items = new ArrayList<>();
-        this.orderTime = new Date();
-        this.status = "PENDING";
+        this.orderTimestamp = System.currentTimeMillis();
+        this.statusCode = OrderStatus.PENDING.getCode();
         this.specialInstructions = "";
         this.discount = 0.0;
     }
 
-    // Helper to reset counter based on loaded data
-    public static void setCounter(int count) {
-        orderCounter = count;
-    }
-
-    public void addEntry(MenuEntry item) {
-        if (item != null && item.isAvailable()) {
-            items.add(item);
-            item.incrementPopularity();
-            System.out.println("✓ Added: " + item.getItemName());
-        } else {
+    // Stock is reserved as the item is added, so two terminals can't both sell the last one
+    public boolean addEntry(MenuEntry item, InventoryManager inventory) {
+        if (item == null || !item.isAvailable()) {
             System.out.println("✗ Item not available or invalid");
+            return false;
+        }
+        if (!inventory.reserve(item)) {
+            System.out.println("✗ Out of stock: " + item.getItemName());
+            return false;
         }
+        // The order keeps its own copy, so later menu edits can't reprice a placed order
+        items.add(item.copy());
+        item.incrementPopularity();
+        System.out.println("✓ Added: " + item.getItemName());
+        return true;
     }
 
     public void setSpecialInstructions(String instructions) {
@@ -196,8 +402,15 @@ class OrderTicket implements Serializable {
     public int getOrderId() { return orderId; }
     public int getTableNumber() { return tableNumber; }
     public String getCustomerName() { return customerName; }
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public long getOrderTime() { return orderTimestamp; }
+    public OrderStatus getStatus() { return OrderStatus.fromCode(statusCode); }
+
+    // Returns false if the lifecycle does not allow the move (e.g. reopening a billed order)
+    public boolean setStatus(OrderStatus status) {
+        if (!getStatus().canMoveTo(status)) return false;
+        this.statusCode = status.getCode();
+        return true;
+    }
     public ArrayList<MenuEntry> getItems() { return new ArrayList<>(items); }
 
     public void displayOrder() {
@@ -208,8 +421,8 @@ class OrderTicket implements Serializable {
         System.out.println("=".repeat(65));
         System.out.println("ORDER ID: #" + orderId + " | TABLE: " + tableNumber);
         System.out.println("Customer: " + customerName);
-        System.out.println("Status: " + status);
-        System.out.println("Date & Time: " + sdf.format(orderTime));
+        System.out.println("Status: " + getStatus());
+        System.out.println("Date & Time: " + sdf.format(new Date(orderTimestamp)));
         System.out.println("-".repeat(65));
 
         if (items.isEmpty()) {
@@ -258,7 +471,7 @@ class OrderTicket implements Serializable {
             writer.println("=".repeat(65));
             writer.println("ORDER ID: #" + orderId + " | TABLE: " + tableNumber);
             writer.println("Customer: " + customerName);
-            writer.println("Date & Time: " + sdf.format(orderTime));
+            writer.println("Date & Time: " + sdf.format(new Date(orderTimestamp)));
             writer.println("-".repeat(65));
 
             for (int i = 0; i < items.size(); i++) {
@@ -275,221 +488,2537 @@ class OrderTicket implements Serializable {
             System.out.println("✗ Error saving bill: " + e.getMessage());
         }
     }
+
+    // Reads both the current layout and orders saved with a Date and a String status
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        orderId = fields.get("orderId", 0);
+        tableNumber = fields.get("tableNumber", 0);
+        items = (ArrayList<MenuEntry>) fields.get("items", null);
+        customerName = (String) fields.get("customerName", null);
+        specialInstructions = (String) fields.get("specialInstructions", "");
+        discount = fields.get("discount", 0.0);
+        if (fields.defaulted("statusCode")) {
+            Date orderTime = (Date) fields.get("orderTime", null);
+            orderTimestamp = orderTime != null ? orderTime.getTime() : 0L;
+            statusCode = OrderStatus.parse((String) fields.get("status", null)).getCode();
+        } else {
+            orderTimestamp = fields.get("orderTimestamp", 0L);
+            statusCode = fields.get("statusCode", (byte) 0);
+        }
+        if (items == null) items = new ArrayList<>();
+        if (specialInstructions == null || specialInstructions.isEmpty()) specialInstructions = "";
+    }
 }
 
-// ==================== OrderManager.java (NEW: Handles Persistence) ====================
+// ==================== ItemAffinityIndex.java ====================
 /**
- * NEW CLASS
- * Manages the list of orders and ensures they are saved to disk.
- * Fixes the bug where orders were lost after restart.
+ * Tracks which menu items are ordered together ("frequently ordered together").
+ * Pair counts live in a sparse map keyed by item name and are updated as each
+ * order is added, so suggestions never rescan the order history.
  */
-class OrderManager {
-    private ArrayList<OrderTicket> orders;
-    private static final String ORDER_FILE = "orders_data.ser";
+class ItemAffinityIndex {
+    private static final int TOP_N = 5;
 
-    public OrderManager() {
-        this.orders = new ArrayList<>();
-        loadOrders();
-        syncOrderCounter();
+    // item -> (partner item -> number of orders containing both)
+    private final Map<String, Map<String, Integer>> pairCounts = new HashMap<>();
+    // item -> best partners, highest count first (at most TOP_N)
+    private final Map<String, List<String>> topPartners = new HashMap<>();
+
+    public synchronized void recordOrder(List<MenuEntry> items) {
+        // Count each pair once per order, even if an item was added twice
+        Set<String> distinct = new LinkedHashSet<>();
+        for (MenuEntry item : items) {
+            distinct.add(key(item.getItemName()));
+        }
+        if (distinct.size() < 2) return;
+
+        for (String item : distinct) {
+            Map<String, Integer> row = pairCounts.computeIfAbsent(item, k -> new HashMap<>());
+            for (String partner : distinct) {
+                if (!item.equals(partner)) {
+                    int count = row.merge(partner, 1, Integer::sum);
+                    updateTopPartners(item, row, partner, count);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts only ever grow, so a partner can only enter (or climb) the
+     * cached list when its own count is bumped. That keeps the list exact
+     * without re-sorting the whole row.
+     */
+    private void updateTopPartners(String item, Map<String, Integer> row, String partner, int count) {
+        List<String> top = topPartners.computeIfAbsent(item, k -> new ArrayList<>(TOP_N + 1));
+        int pos = top.indexOf(partner);
+        if (pos < 0) {
+            if (top.size() == TOP_N && row.get(top.get(TOP_N - 1)) >= count) return;
+            top.add(partner);
+            pos = top.size() - 1;
+        }
+        while (pos > 0 && row.get(top.get(pos - 1)) < count) {
+            Collections.swap(top, pos, pos - 1);
+            pos--;
+        }
+        if (top.size() > TOP_N) top.remove(TOP_N);
+    }
+
+    /**
+     * Scores the cached partners of every item in the order and returns the
+     * best names not already in it.
+     */
+    public synchronized List<String> suggestFor(List<MenuEntry> orderItems, int limit) {
+        Set<String> inOrder = new HashSet<>();
+        for (MenuEntry item : orderItems) {
+            inOrder.add(key(item.getItemName()));
+        }
+
+        Map<String, Integer> scores = new HashMap<>();
+        for (String item : inOrder) {
+            List<String> top = topPartners.get(item);
+            if (top == null) continue;
+            Map<String, Integer> row = pairCounts.get(item);
+            for (String partner : top) {
+                if (!inOrder.contains(partner)) {
+                    scores.merge(partner, row.get(partner), Integer::sum);
+                }
+            }
+        }
+
+        return scores.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+            .limit(limit)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+    }
+
+    private static String key(String itemName) {
+        return itemName.toLowerCase();
+    }
+}
+
+// ==================== PersistenceScheduler.java ====================
+/**
+ * Write-behind for the .ser files. Managers mark their store dirty instead of
+ * writing on the caller's thread. A single background thread then writes
+ * every dirty store in one pass (group commit). That pass runs once edits
+ * have been quiet for the debounce delay, and never later than the maximum
+ * durability delay after the first unsaved edit. A burst of edits therefore
+ * costs one write per file.
+ *
+ * Delays come from -Ddineflow.flushDelayMs (default 200) and
+ * -Ddineflow.maxFlushDelayMs (default 1000); a maximum of 0 writes
+ * synchronously, as before. Pending writes are flushed on exit.
+ */
+class PersistenceScheduler {
+    private static final long DEFAULT_DEBOUNCE_MS = 200;
+    private static final long DEFAULT_MAX_DELAY_MS = 1000;
+    private static PersistenceScheduler defaultScheduler;
+
+    private final long debounceNanos;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService executor;
+    private final List<Store> stores = new ArrayList<>();
+
+    private ScheduledFuture<?> pendingFlush;
+    private long firstDirtyAt;
+    private long flushDeadline;
+    private long changeCount;
+    private long writeCount;
+
+    /** A file managed by the scheduler; the writer snapshots and saves it. */
+    class Store {
+        private final Runnable writer;
+        private boolean dirty;
+        // Set while one thread runs the writer, so the same file is never written twice at once
+        private boolean writing;
+
+        private Store(Runnable writer) { this.writer = writer; }
+
+        public void markDirty() { PersistenceScheduler.this.markDirty(this); }
+    }
+
+    static synchronized PersistenceScheduler getDefault() {
+        if (defaultScheduler == null) {
+            defaultScheduler = new PersistenceScheduler(
+                Long.getLong("dineflow.flushDelayMs", DEFAULT_DEBOUNCE_MS),
+                Long.getLong("dineflow.maxFlushDelayMs", DEFAULT_MAX_DELAY_MS));
+            Runtime.getRuntime().addShutdownHook(
+                new Thread(defaultScheduler::flush, "dineflow-flush-on-exit"));
+        }
+        return defaultScheduler;
+    }
+
+    public PersistenceScheduler(long debounceMs, long maxDelayMs) {
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMs));
+        this.debounceNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(Math.max(0, debounceMs)), maxDelayNanos);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dineflow-persistence");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public synchronized Store register(Runnable writer) {
+        Store store = new Store(writer);
+        stores.add(store);
+        return store;
     }
 
+    private void markDirty(Store store) {
+        synchronized (this) {
+            changeCount++;
+            store.dirty = true;
+            if (maxDelayNanos > 0) {
+                scheduleFlush();
+                return;
+            }
+            // Synchronous mode: write on the caller's thread, unless another
+            // thread is writing this store already and will pick the change up
+            if (store.writing) return;
+            store.writing = true;
+        }
+        writeClaimed(store);
+    }
+
+    // Called with this scheduler's monitor held
+    private void scheduleFlush() {
+        long now = System.nanoTime();
+        if (pendingFlush == null) firstDirtyAt = now;
+        long deadline = Math.min(now + debounceNanos, firstDirtyAt + maxDelayNanos);
+        if (pendingFlush != null) {
+            if (deadline == flushDeadline) return;
+            pendingFlush.cancel(false);
+        }
+        flushDeadline = deadline;
+        pendingFlush = executor.schedule(this::flush, deadline - now, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes every dirty store now, on the calling thread, waiting for any
+     * write already in progress. Must not be called while holding a lock
+     * that a writer takes.
+     */
+    public void flush() {
+        List<Store> all;
+        synchronized (this) {
+            if (pendingFlush != null) {
+                pendingFlush.cancel(false);
+                pendingFlush = null;
+            }
+            all = new ArrayList<>(stores);
+        }
+        for (Store store : all) {
+            synchronized (this) {
+                while (store.writing) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!store.dirty) continue;
+                store.writing = true;
+            }
+            writeClaimed(store);
+        }
+    }
+
+    /**
+     * Runs the writer until the store is clean, then releases the claim.
+     * No scheduler lock is held while a writer runs. Owners call markDirty
+     * while holding their own monitor, and writers take that monitor to
+     * snapshot, so a lock held across the write could deadlock with them.
+     */
+    private void writeClaimed(Store store) {
+        while (true) {
+            synchronized (this) {
+                if (!store.dirty) {
+                    // Released in the same step as the check, so a change marked meanwhile is never skipped
+                    releaseClaim(store);
+                    return;
+                }
+                store.dirty = false;
+                writeCount++;
+            }
+            try {
+                store.writer.run();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    releaseClaim(store);
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Called with this scheduler's monitor held
+    private void releaseClaim(Store store) {
+        store.writing = false;
+        notifyAll();
+    }
+
+    /** Flushes pending changes and stops the background thread. */
+    public void shutdown() {
+        flush();
+        executor.shutdown();
+    }
+
+    public synchronized long getChangeCount() { return changeCount; }
+    public synchronized long getWriteCount() { return writeCount; }
+
+    /**
+     * Serializes to a temp file and renames it over the target. A crash
+     * mid-write therefore leaves the previous file intact. Every write gets
+     * its own temp file, so two writers saving the same file at once can't clash.
+     * The temp file is opened like any other data file rather than through
+     * Files.createTempFile, so the saved file keeps the usual permissions.
+     */
+    static void writeObjectAtomically(String file, Object data) throws IOException {
+        Path target = Paths.get(file).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)))) {
+                oos.writeObject(data);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
+
+// ==================== OrderSummary.java ====================
+/**
+ * Aggregate figures for one order store. Summaries from several outlets
+ * can be merged, so chain-wide reports never need all orders in one place.
+ */
+class OrderSummary {
+    private int orderCount;
+    private int completedOrders;
+    private int pendingOrders;
+    private int cancelledOrders;
+    private double totalRevenue;
+
+    // Cancelled orders are counted on their own and add nothing to revenue
     public void addOrder(OrderTicket order) {
-        orders.add(order);
-        saveOrders();
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            cancelledOrders++;
+            return;
+        }
+        orderCount++;
+        totalRevenue += order.computeTotalWithTax();
+        if (order.getStatus() == OrderStatus.BILLED) {
+            completedOrders++;
+        } else {
+            pendingOrders++;
+        }
     }
 
-    public ArrayList<OrderTicket> getAllOrders() {
-        return orders;
+    public OrderSummary merge(OrderSummary other) {
+        orderCount += other.orderCount;
+        completedOrders += other.completedOrders;
+        pendingOrders += other.pendingOrders;
+        cancelledOrders += other.cancelledOrders;
+        totalRevenue += other.totalRevenue;
+        return this;
     }
 
-    public OrderTicket findOrderById(int id) {
-        for(OrderTicket o : orders) {
-            if(o.getOrderId() == id) return o;
+    public int getOrderCount() { return orderCount; }
+    public int getCompletedOrders() { return completedOrders; }
+    public int getPendingOrders() { return pendingOrders; }
+    public int getCancelledOrders() { return cancelledOrders; }
+    public double getTotalRevenue() { return totalRevenue; }
+
+    public double getAverageOrderValue() {
+        return orderCount == 0 ? 0.0 : totalRevenue / orderCount;
+    }
+}
+
+// ==================== TableSessionTracker.java ====================
+/**
+ * Live table state kept in primitive arrays indexed by table number, so
+ * "is table 12 free" and "what does table 12 owe" are array reads and
+ * never scan orders. A session starts with the first open order at a free
+ * table and ends when its last open order is billed.
+ *
+ * Tables can be merged for a large party: the secondary table's open bill
+ * moves to the primary, and later orders placed at either table are charged
+ * to the primary. Splitting moves the secondary's own open orders back.
+ */
+class TableSessionTracker {
+    static final int MAX_TABLE_NUMBER = 9999;
+    private static final int DEFAULT_TABLE_COUNT = 20;
+
+    // Indexed by table number; slot 0 is unused. Grown on demand up to MAX_TABLE_NUMBER.
+    private int[] openOrders;
+    private double[] runningBill;
+    private long[] seatedSince;
+    private long[] totalSeatMillis;
+    private int[] turnovers;
+    private int[] ordersTaken;
+    private int[] mergedInto;
+    private final BitSet occupied = new BitSet();
+    private final int tableCount;
+    private int highestTable;
+
+    // Open orders only (never history): where each one was placed and what it adds to the bill
+    private final Map<Integer, OpenOrder> openByOrderId = new HashMap<>();
+
+    private static class OpenOrder {
+        final int table;
+        final double amount;
+        OpenOrder(int table, double amount) { this.table = table; this.amount = amount; }
+    }
+
+    public TableSessionTracker() {
+        this.tableCount = Math.max(1, Math.min(MAX_TABLE_NUMBER,
+            Integer.getInteger("dineflow.tables", DEFAULT_TABLE_COUNT)));
+        this.highestTable = tableCount;
+        int size = tableCount + 1;
+        this.openOrders = new int[size];
+        this.runningBill = new double[size];
+        this.seatedSince = new long[size];
+        this.totalSeatMillis = new long[size];
+        this.turnovers = new int[size];
+        this.ordersTaken = new int[size];
+        this.mergedInto = new int[size];
+    }
+
+    public static boolean isValidTable(int table) {
+        return table >= 1 && table <= MAX_TABLE_NUMBER;
+    }
+
+    // ---------- Updates ----------
+
+    public synchronized void openOrder(OrderTicket order) {
+        int table = order.getTableNumber();
+        if (!isValidTable(table) || openByOrderId.containsKey(order.getOrderId())) return;
+        ensureCapacity(table);
+        ordersTaken[table]++;
+
+        // Placed orders hold copies of their items, so this stays equal to the order's bill
+        double amount = order.computeTotalWithTax();
+        openByOrderId.put(order.getOrderId(), new OpenOrder(table, amount));
+        int primary = resolve(table);
+        if (openOrders[primary] == 0 && seatedSince[primary] == 0) {
+            seatedSince[primary] = order.getOrderTime();
+            occupied.set(primary);
         }
-        return null;
+        openOrders[primary]++;
+        runningBill[primary] += amount;
     }
 
-    public void saveOrders() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(ORDER_FILE))) {
-            oos.writeObject(orders);
-        } catch (IOException e) {
-            System.out.println("Note: Could not save order history.");
+    public synchronized void closeOrder(OrderTicket order) {
+        OpenOrder open = openByOrderId.remove(order.getOrderId());
+        if (open == null) return;
+
+        int primary = resolve(open.table);
+        openOrders[primary]--;
+        runningBill[primary] -= open.amount;
+        if (openOrders[primary] == 0) {
+            endSession(primary, System.currentTimeMillis());
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void loadOrders() {
-        File f = new File(ORDER_FILE);
-        if(!f.exists()) return;
+    // Counts a historical (already billed or cancelled) order towards utilization only
+    public synchronized void recordClosedOrder(OrderTicket order) {
+        int table = order.getTableNumber();
+        if (!isValidTable(table)) return;
+        ensureCapacity(table);
+        ordersTaken[table]++;
+    }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(f))) {
-            orders = (ArrayList<OrderTicket>) ois.readObject();
-        } catch (Exception e) {
-            System.out.println("Note: Starting with fresh order history.");
+    private void endSession(int primary, long now) {
+        if (seatedSince[primary] > 0) {
+            totalSeatMillis[primary] += Math.max(0, now - seatedSince[primary]);
+            turnovers[primary]++;
+        }
+        seatedSince[primary] = 0;
+        runningBill[primary] = 0.0; // Clears rounding drift
+        occupied.clear(primary);
+        // The party has left, so any tables joined to this one are free again
+        for (int t = 1; t <= highestTable; t++) {
+            if (mergedInto[t] == primary) {
+                mergedInto[t] = 0;
+                occupied.clear(t);
+            }
         }
     }
 
-    // Fix for ID Reset Bug: Finds the highest ID and sets the counter
-    private void syncOrderCounter() {
-        if(!orders.isEmpty()) {
-            int maxId = orders.stream()
-                              .mapToInt(OrderTicket::getOrderId)
-                              .max()
-                              .orElse(1000);
-            OrderTicket.setCounter(maxId);
+    /** Joins table {@code secondary} onto {@code primary}; the secondary's open bill moves across. */
+    public synchronized void merge(int secondary, int primary) {
+        if (!isValidTable(secondary) || !isValidTable(primary) || secondary == primary) {
+            throw new IllegalArgumentException("Choose two different valid tables");
+        }
+        ensureCapacity(Math.max(secondary, primary));
+        if (mergedInto[secondary] != 0 || mergedInto[primary] != 0) {
+            throw new IllegalStateException("A merged table cannot be merged again; split it first");
+        }
+        for (int t = 1; t <= highestTable; t++) {
+            if (mergedInto[t] == secondary) {
+                throw new IllegalStateException("Table " + secondary + " has tables merged into it");
+            }
+        }
+
+        // The session starts with the first order at either table, so joining two free tables starts nothing
+        if (seatedSince[secondary] > 0) {
+            seatedSince[primary] = seatedSince[primary] > 0
+                ? Math.min(seatedSince[primary], seatedSince[secondary]) : seatedSince[secondary];
+        }
+        openOrders[primary] += openOrders[secondary];
+        runningBill[primary] += runningBill[secondary];
+        openOrders[secondary] = 0;
+        runningBill[secondary] = 0.0;
+        seatedSince[secondary] = 0;
+        mergedInto[secondary] = primary;
+        occupied.set(primary);
+        occupied.set(secondary);
+    }
+
+    /** Detaches a merged table; its own open orders go back onto it. */
+    public synchronized void split(int secondary) {
+        if (!isValidTable(secondary) || secondary >= mergedInto.length || mergedInto[secondary] == 0) {
+            throw new IllegalStateException("Table " + secondary + " is not merged");
+        }
+        int primary = mergedInto[secondary];
+        mergedInto[secondary] = 0;
+        occupied.clear(secondary);
+
+        for (OpenOrder open : openByOrderId.values()) {
+            if (open.table == secondary) {
+                openOrders[primary]--;
+                runningBill[primary] -= open.amount;
+                openOrders[secondary]++;
+                runningBill[secondary] += open.amount;
+            }
+        }
+        if (openOrders[secondary] > 0) {
+            seatedSince[secondary] = seatedSince[primary];
+            occupied.set(secondary);
+        }
+        if (openOrders[primary] == 0) {
+            endSession(primary, System.currentTimeMillis());
+        }
+    }
+
+    // ---------- Queries (no order scans) ----------
+
+    /** Amount owed by the party at this table (the primary's bill if merged). */
+    public synchronized double getAmountOwed(int table) {
+        if (!isValidTable(table) || table >= runningBill.length) return 0.0;
+        return runningBill[resolve(table)];
+    }
+
+    public synchronized int getOpenOrders(int table) {
+        if (!isValidTable(table) || table >= openOrders.length) return 0;
+        return openOrders[resolve(table)];
+    }
+
+    public synchronized int getMergedInto(int table) {
+        return isValidTable(table) && table < mergedInto.length ? mergedInto[table] : 0;
+    }
+
+    public synchronized long getSeatedSince(int table) {
+        if (!isValidTable(table) || table >= seatedSince.length) return 0;
+        return seatedSince[resolve(table)];
+    }
+
+    public synchronized int getTurnovers(int table) {
+        return isValidTable(table) && table < turnovers.length ? turnovers[table] : 0;
+    }
+
+    // Average length of a finished session at this table
+    public synchronized double getAverageSeatMinutes(int table) {
+        if (getTurnovers(table) == 0) return 0.0;
+        return totalSeatMillis[table] / 60000.0 / turnovers[table];
+    }
+
+    public synchronized List<Integer> getFreeTables() {
+        List<Integer> free = new ArrayList<>();
+        for (int t = occupied.nextClearBit(1); t <= tableCount; t = occupied.nextClearBit(t + 1)) {
+            free.add(t);
+        }
+        return free;
+    }
+
+    public synchronized List<Integer> getOccupiedTables() {
+        List<Integer> busy = new ArrayList<>();
+        for (int t = occupied.nextSetBit(1); t >= 0; t = occupied.nextSetBit(t + 1)) {
+            busy.add(t);
+        }
+        return busy;
+    }
+
+    /** Tables with the most orders (history included), busiest first, as {table, orders} pairs. */
+    public synchronized List<int[]> getBusiestTables(int limit) {
+        List<int[]> busiest = new ArrayList<>();
+        for (int t = 1; t <= highestTable; t++) {
+            if (ordersTaken[t] > 0) busiest.add(new int[] {t, ordersTaken[t]});
+        }
+        busiest.sort((a, b) -> Integer.compare(b[1], a[1]));
+        return new ArrayList<>(busiest.subList(0, Math.min(limit, busiest.size())));
+    }
+
+    private int resolve(int table) {
+        return mergedInto[table] != 0 ? mergedInto[table] : table;
+    }
+
+    private void ensureCapacity(int table) {
+        if (table >= openOrders.length) {
+            int size = Math.min(MAX_TABLE_NUMBER + 1, Math.max(table + 1, openOrders.length * 2));
+            openOrders = Arrays.copyOf(openOrders, size);
+            runningBill = Arrays.copyOf(runningBill, size);
+            seatedSince = Arrays.copyOf(seatedSince, size);
+            totalSeatMillis = Arrays.copyOf(totalSeatMillis, size);
+            turnovers = Arrays.copyOf(turnovers, size);
+            ordersTaken = Arrays.copyOf(ordersTaken, size);
+            mergedInto = Arrays.copyOf(mergedInto, size);
         }
+        highestTable = Math.max(highestTable, table);
     }
 }
 
-// ==================== MenuManager.java ====================
-class MenuManager implements Serializable {
-    private static final long serialVersionUID = 1L;
-    private ArrayList<MenuEntry> menuItems;
-    private static final String MENU_FILE = "menu_data.ser";
+// ==================== OrderQuery.java ====================
+/**
+ * Filter for browsing order history. Orders are stored in orderTime
+ * order, so the time range is found by binary search. The other filters
+ * only look at orders inside that range. Results come back a page at a
+ * time, so a week of history is never gathered into one list.
+ */
+class OrderQuery {
+    static final int DEFAULT_PAGE_SIZE = 20;
 
-    public MenuManager() {
-        this.menuItems = new ArrayList<>();
-        if (!loadMenu()) {
-            initializeSampleMenu();
+    private long from = Long.MIN_VALUE;
+    private long to = Long.MAX_VALUE;
+    private OrderStatus status;
+    private int tableNumber;
+    private String customer;
+    private double minTotal = -1;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    // Inclusive bounds in epoch millis
+    public OrderQuery from(long epochMillis) { this.from = epochMillis; return this; }
+    public OrderQuery to(long epochMillis) { this.to = epochMillis; return this; }
+    public OrderQuery status(OrderStatus status) { this.status = status; return this; }
+    public OrderQuery table(int tableNumber) { this.tableNumber = tableNumber; return this; }
+    // Case-insensitive "contains" match on the customer name
+    public OrderQuery customer(String name) { this.customer = name == null ? null : name.toLowerCase(); return this; }
+    // Minimum total including tax and discount
+    public OrderQuery minTotal(double amount) { this.minTotal = amount; return this; }
+    public OrderQuery pageSize(int size) { this.pageSize = Math.max(1, size); return this; }
+
+    public long getFrom() { return from; }
+    public long getTo() { return to; }
+    public int getPageSize() { return pageSize; }
+
+    boolean matches(OrderTicket order) {
+        if (status != null && order.getStatus() != status) return false;
+        if (tableNumber > 0 && order.getTableNumber() != tableNumber) return false;
+        if (customer != null && (order.getCustomerName() == null
+                || !order.getCustomerName().toLowerCase().contains(customer))) return false;
+        return minTotal < 0 || order.computeTotalWithTax() >= minTotal;
+    }
+
+    /**
+     * Parses "yyyy-MM-dd" or "yyyy-MM-dd HH:mm" (a 'T' also works) in local
+     * time. A date without a time means the start of the day, or its end when
+     * {@code endOfDay} is set, so a "to" date includes the whole day.
+     */
+    static long parseTime(String text, boolean endOfDay) {
+        String t = text.trim().replace('T', ' ');
+        try {
+            if (t.length() <= 10) {
+                java.time.LocalDate date = java.time.LocalDate.parse(t);
+                java.time.LocalDateTime time = endOfDay ? date.plusDays(1).atStartOfDay().minusNanos(1_000_000)
+                                                        : date.atStartOfDay();
+                return time.atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            java.time.LocalDateTime time = java.time.LocalDateTime.parse(t,
+                java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+            if (endOfDay) time = time.plusSeconds(59).plusNanos(999_000_000);
+            return time.atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (java.time.format.DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid date/time '" + text.trim() + "', use yyyy-MM-dd [HH:mm]");
+        }
+    }
+
+    /** One page of results; pass {@code nextCursor} back to continue, -1 when finished. */
+    static class Page {
+        final List<OrderTicket> orders;
+        final int nextCursor;
+
+        Page(List<OrderTicket> orders, int nextCursor) {
+            this.orders = orders;
+            this.nextCursor = nextCursor;
+        }
+
+        boolean hasMore() { return nextCursor >= 0; }
+    }
+}
+
+// ==================== OrderManager.java (NEW: Handles Persistence) ====================
+/**
+ * NEW CLASS
+ * Manages the list of orders and ensures they are saved to disk.
+ * Fixes the bug where orders were lost after restart.
+ *
+ * Each outlet gets its own OrderManager (one shard) with its own file and
+ * its own block of order ids, so outlets never share a file or a lock.
+ */
+class OrderManager {
+    private ArrayList<OrderTicket> orders;
+    private final ItemAffinityIndex affinityIndex = new ItemAffinityIndex();
+    private final TableSessionTracker tables = new TableSessionTracker();
+    private static final String ORDER_FILE = "orders_data.ser";
+    // Every shard owns one block of ids: shard 0 is 1001..999999, shard 1 is 1001001.., etc.
+    private static final int ID_RANGE_SIZE = 1_000_000;
+    private static final int ID_RANGE_OFFSET = 1000;
+
+    private final String orderFile;
+    // Highest order id handed out, saved next to the orders so startup needn't read them
+    private final String counterFile;
+    private final int lastIdInRange;
+    private int lastOrderId;
+    private final PersistenceScheduler.Store store;
+    // Completes once the order history is in memory; null if it was loaded up front
+    private final CompletableFuture<Void> historyLoad;
+    // Takes back the stock of cancelled orders; null for report-only stores
+    private volatile InventoryManager inventory;
+
+    // Single-outlet store using the original orders_data.ser
+    public OrderManager() {
+        this(ORDER_FILE, 0);
+    }
+
+    // True if the original single-outlet store (shard 0) has any data
+    static boolean hasMainStore() {
+        return new File(ORDER_FILE).exists();
+    }
+
+    public OrderManager(Outlet outlet) {
+        this(outlet.getOrderFile(), outlet.getIndex());
+    }
+
+    private OrderManager(String orderFile, int shardIndex) {
+        this.orderFile = orderFile;
+        this.counterFile = orderFile.replaceFirst("\\.ser$", "") + ".seq";
+        this.lastOrderId = shardIndex * ID_RANGE_SIZE + ID_RANGE_OFFSET;
+        this.lastIdInRange = (shardIndex + 1) * ID_RANGE_SIZE - 1;
+        this.orders = new ArrayList<>();
+        this.store = PersistenceScheduler.getDefault().register(this::writeOrders);
+
+        if (loadCounter() || !new File(orderFile).exists()) {
+            // New ids are known already, so history can load in the background
+            this.historyLoad = CompletableFuture.runAsync(this::loadHistory);
+        } else {
+            // Older data without a counter file: read history once to find the highest id
+            loadHistory();
+            writeCounter(lastOrderId);
+            this.historyLoad = null;
+        }
+    }
+
+    public synchronized OrderTicket createOrder(int tableNumber, String customerName) {
+        if (lastOrderId >= lastIdInRange) {
+            throw new IllegalStateException("Order id range exhausted for " + orderFile);
+        }
+        return new OrderTicket(++lastOrderId, tableNumber, customerName);
+    }
+
+    public void addOrder(OrderTicket order) {
+        awaitHistory();
+        synchronized (this) {
+            // Keep orders sorted by time; an order started earlier but placed later goes back into place
+            int pos = orders.size();
+            while (pos > 0 && orders.get(pos - 1).getOrderTime() > order.getOrderTime()) pos--;
+            orders.add(pos, order);
+            affinityIndex.recordOrder(order.getItems());
+            tables.openOrder(order);
+        }
+        saveOrders();
+    }
+
+    public void attachInventory(InventoryManager inventory) {
+        this.inventory = inventory;
+    }
+
+    /**
+     * Moves the order through its lifecycle and frees the table once it is
+     * billed or cancelled. An order cancelled while still PENDING gives its
+     * stock back; once the kitchen has started, the ingredients are used.
+     */
+    public boolean updateStatus(OrderTicket order, OrderStatus status) {
+        awaitHistory();
+        OrderStatus previous;
+        synchronized (this) {
+            previous = order.getStatus();
+            if (!order.setStatus(status)) return false;
+            if (status.isFinal()) {
+                tables.closeOrder(order);
+            }
+        }
+        InventoryManager stock = inventory;
+        if (stock != null && status == OrderStatus.CANCELLED && previous == OrderStatus.PENDING) {
+            stock.releaseAll(order.getItems());
+        }
+        saveOrders();
+        return true;
+    }
+
+    public TableSessionTracker getTables() {
+        awaitHistory();
+        return tables;
+    }
+
+    // Names of items most often ordered together; empty until history has loaded
+    public List<String> suggestItems(List<MenuEntry> orderItems, int limit) {
+        if (!isHistoryLoaded()) return Collections.emptyList();
+        return affinityIndex.suggestFor(orderItems, limit);
+    }
+
+    public ArrayList<OrderTicket> getAllOrders() {
+        awaitHistory();
+        return orders;
+    }
+
+    public OrderTicket findOrderById(int id) {
+        for(OrderTicket o : getAllOrders()) {
+            if(o.getOrderId() == id) return o;
+        }
+        return null;
+    }
+
+    public OrderSummary summarize() {
+        awaitHistory();
+        synchronized (this) {
+            OrderSummary summary = new OrderSummary();
+            for (OrderTicket order : orders) {
+                summary.addOrder(order);
+            }
+            return summary;
+        }
+    }
+
+    /**
+     * Returns the next page of orders matching the query, oldest first.
+     * Start with cursor 0 and pass each page's nextCursor back in.
+     */
+    public OrderQuery.Page query(OrderQuery query, int cursor) {
+        awaitHistory();
+        synchronized (this) {
+            int start = Math.max(cursor, firstAtOrAfter(query.getFrom()));
+            int end = firstAtOrAfter(query.getTo() == Long.MAX_VALUE ? Long.MAX_VALUE : query.getTo() + 1);
+            List<OrderTicket> page = new ArrayList<>(query.getPageSize());
+            int i = start;
+            for (; i < end && page.size() < query.getPageSize(); i++) {
+                OrderTicket order = orders.get(i);
+                if (query.matches(order)) page.add(order);
+            }
+            return new OrderQuery.Page(page, i < end ? i : -1);
+        }
+    }
+
+    // Binary search: index of the first order placed at or after the given time
+    private int firstAtOrAfter(long time) {
+        int lo = 0, hi = orders.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (orders.get(mid).getOrderTime() < time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    public boolean isHistoryLoaded() {
+        return historyLoad == null || historyLoad.isDone();
+    }
+
+    // Blocks until the background history load has finished (a no-op afterwards)
+    public void awaitHistory() {
+        if (historyLoad != null) historyLoad.join();
+    }
+
+    // Schedules a write; bursts of changes are coalesced by the PersistenceScheduler
+    public void saveOrders() {
+        store.markDirty();
+    }
+
+    private void writeOrders() {
+        ArrayList<OrderTicket> snapshot;
+        int counter;
+        synchronized (this) {
+            snapshot = new ArrayList<>(orders);
+            counter = lastOrderId;
+        }
+        // Counter first: after a crash in between it is ahead of the history, never behind
+        writeCounter(counter);
+        try {
+            PersistenceScheduler.writeObjectAtomically(orderFile, snapshot);
+        } catch (IOException e) {
+            System.out.println("Note: Could not save order history.");
+        }
+    }
+
+    private void writeCounter(int counter) {
+        try {
+            PersistenceScheduler.writeObjectAtomically(counterFile, counter);
+        } catch (IOException e) {
+            System.out.println("Note: Could not save order counter.");
+        }
+    }
+
+    private boolean loadCounter() {
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(counterFile))) {
+            lastOrderId = Math.max(lastOrderId, (Integer) ois.readObject());
+            return true;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            return false;
+        }
+    }
+
+    // Reads and indexes the history without holding the lock, so new orders can be started meanwhile
+    private void loadHistory() {
+        ArrayList<OrderTicket> loaded = loadOrders();
+        for (OrderTicket order : loaded) {
+            affinityIndex.recordOrder(order.getItems());
+            if (order.getStatus().isFinal()) {
+                tables.recordClosedOrder(order);
+            } else {
+                tables.openOrder(order);
+            }
+        }
+        // Range queries rely on time order; only very old files can be out of order
+        for (int i = 1; i < loaded.size(); i++) {
+            if (loaded.get(i - 1).getOrderTime() > loaded.get(i).getOrderTime()) {
+                loaded.sort(Comparator.comparingLong(OrderTicket::getOrderTime));
+                break;
+            }
+        }
+        synchronized (this) {
+            orders = loaded;
+            syncOrderCounter();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayList<OrderTicket> loadOrders() {
+        File f = new File(orderFile);
+        if(!f.exists()) return new ArrayList<>();
+
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            return (ArrayList<OrderTicket>) ois.readObject();
+        } catch (Exception e) {
+            System.out.println("Note: Starting with fresh order history.");
+            return new ArrayList<>();
+        }
+    }
+
+    // Fix for ID Reset Bug: Finds the highest ID and sets the counter
+    private void syncOrderCounter() {
+        for (OrderTicket order : orders) {
+            lastOrderId = Math.max(lastOrderId, order.getOrderId());
+        }
+    }
+}
+
+// ==================== Outlet.java ====================
+class Outlet {
+    private final String code;
+    private final int index;
+
+    public Outlet(String code, int index) {
+        this.code = code;
+        this.index = index;
+    }
+
+    public String getCode() { return code; }
+    public int getIndex() { return index; }
+
+    public String getOrderFile() { return "orders_" + code + ".ser"; }
+    public String getMenuOverrideFile() { return "menu_overrides_" + code + ".ser"; }
+    public String getInventoryFile() { return "inventory_" + code + ".ser"; }
+}
+
+// ==================== OutletRegistry.java ====================
+/**
+ * Keeps the list of outlets in outlets.txt, one code per line.
+ * An outlet's line number is its shard index, which fixes its order id
+ * range for good, so codes are only ever appended.
+ */
+class OutletRegistry {
+    private static final String REGISTRY_FILE = "outlets.txt";
+    private final List<String> codes = new ArrayList<>();
+
+    public OutletRegistry() {
+        File f = new File(REGISTRY_FILE);
+        if (!f.exists()) return;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) codes.add(line.trim().toUpperCase());
+            }
+        } catch (IOException e) {
+            System.out.println("Note: Could not read outlet list.");
+        }
+    }
+
+    // Looks up a registered outlet; null if the code was never registered
+    public Outlet find(String code) {
+        String normalized = normalize(code);
+        int pos = codes.indexOf(normalized);
+        // Index 0 is the original single-outlet store
+        return pos < 0 ? null : new Outlet(normalized, pos + 1);
+    }
+
+    // Registration is explicit because it permanently claims a shard and its id block
+    public Outlet register(String code) {
+        String normalized = normalize(code);
+        if (!codes.contains(normalized)) {
+            codes.add(normalized);
+            save();
+            System.out.println("✓ Registered outlet " + normalized);
+        }
+        return find(normalized);
+    }
+
+    public List<String> getCodes() {
+        return new ArrayList<>(codes);
+    }
+
+    private static String normalize(String code) {
+        String normalized = code.trim().toUpperCase();
+        if (!normalized.matches("[A-Z0-9_-]+")) {
+            throw new IllegalArgumentException("Invalid outlet code: " + code);
+        }
+        return normalized;
+    }
+
+    public List<Outlet> getOutlets() {
+        List<Outlet> outlets = new ArrayList<>();
+        for (int i = 0; i < codes.size(); i++) {
+            outlets.add(new Outlet(codes.get(i), i + 1));
+        }
+        return outlets;
+    }
+
+    private void save() {
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(REGISTRY_FILE), StandardCharsets.UTF_8))) {
+            for (String c : codes) writer.println(c);
+        } catch (IOException e) {
+            System.out.println("Note: Could not save outlet list.");
+        }
+    }
+}
+
+// ==================== MenuCatalog.java ====================
+/**
+ * The menu as seen from the till: either the central menu itself or an
+ * outlet's view of it with local price and availability overrides.
+ */
+interface MenuCatalog {
+    void displayMenu();
+    MenuEntry findMenuItem(String itemName);
+    ArrayList<MenuEntry> getAllItems();
+    List<MenuEntry> getMostPopularItems(int count);
+    boolean updateMenuItem(String itemName, double newPrice);
+    boolean toggleAvailability(String itemName);
+    boolean setSoldOut(String itemName, boolean soldOut);
+}
+
+// ==================== MenuManager.java ====================
+class MenuManager implements MenuCatalog, Serializable {
+    private static final long serialVersionUID = 1L;
+    private ArrayList<MenuEntry> menuItems;
+    // Lower-cased name -> item, so lookups and bulk updates don't scan the menu
+    private transient Map<String, MenuEntry> nameIndex;
+    private transient PersistenceScheduler.Store store;
+    private static final String MENU_FILE = "menu_data.ser";
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    public MenuManager() {
+        this.menuItems = new ArrayList<>();
+        this.store = PersistenceScheduler.getDefault().register(this::writeMenu);
+        if (!loadMenu()) {
+            initializeSampleMenu();
+        }
+        rebuildIndex();
+    }
+
+    public synchronized void addMenuItem(MenuEntry item) {
+        if (item != null) {
+            menuItems.add(item);
+            index(item);
+            System.out.println("✓ Menu item added: " + item.getItemName());
+            saveMenu();
+        }
+    }
+
+    /**
+     * Adds a whole batch with a single save. The batch is validated first
+     * (names present and unique, prices not negative) and nothing is added
+     * if any item fails.
+     */
+    public synchronized boolean addMenuItems(List<MenuEntry> items) {
+        List<String> errors = new ArrayList<>();
+        Set<String> batchNames = new HashSet<>();
+        for (MenuEntry item : items) {
+            String name = item.getItemName();
+            if (name == null || name.trim().isEmpty()) {
+                errors.add("Item with empty name");
+            } else if (item.getBasePrice() < 0) {
+                errors.add("Negative price for: " + name);
+            } else if (nameIndex.containsKey(name.toLowerCase()) || !batchNames.add(name.toLowerCase())) {
+                errors.add("Duplicate item: " + name);
+            }
+        }
+        if (!errors.isEmpty()) {
+            reportRejectedBatch(errors);
+            return false;
+        }
+
+        menuItems.addAll(items);
+        for (MenuEntry item : items) index(item);
+        saveMenu();
+        System.out.println("✓ " + items.size() + " menu items added");
+        return true;
+    }
+
+    /**
+     * Loads a supplier catalog (or a re-imported export) with a single save.
+     * New names are added. For names already on the menu only the price and
+     * availability are taken, so popularity and the other attributes stay.
+     * Nothing changes if any record is invalid, repeats a name, or changes
+     * an existing item's category.
+     */
+    public synchronized boolean importMenuItems(List<MenuEntry> items) {
+        List<String> errors = new ArrayList<>();
+        Set<String> batchNames = new HashSet<>();
+        for (MenuEntry item : items) {
+            String name = item.getItemName();
+            MenuEntry existing = name == null ? null : findMenuItem(name);
+            if (name == null || name.trim().isEmpty()) {
+                errors.add("Item with empty name");
+            } else if (item.getBasePrice() < 0) {
+                errors.add("Negative price for: " + name);
+            } else if (!batchNames.add(name.toLowerCase())) {
+                errors.add("Duplicate item: " + name);
+            } else if (existing != null && existing.getCategoryType() != item.getCategoryType()) {
+                errors.add("Category differs from the menu for: " + name);
+            }
+        }
+        if (!errors.isEmpty()) {
+            reportRejectedBatch(errors);
+            return false;
+        }
+
+        int updated = 0;
+        for (MenuEntry item : items) {
+            MenuEntry existing = findMenuItem(item.getItemName());
+            if (existing != null) {
+                existing.setBasePrice(item.getBasePrice());
+                existing.setAvailable(item.isAvailable());
+                updated++;
+            } else {
+                menuItems.add(item);
+                index(item);
+            }
+        }
+        saveMenu();
+        System.out.println("✓ " + (items.size() - updated) + " menu items added, " + updated + " updated");
+        return true;
+    }
+
+    // Applies every price in one save; nothing changes if any name is unknown or a price is negative
+    public synchronized boolean updatePrices(Map<String, Double> newPrices) {
+        List<String> errors = new ArrayList<>();
+        for (Map.Entry<String, Double> e : newPrices.entrySet()) {
+            if (findMenuItem(e.getKey()) == null) {
+                errors.add("Item not found: " + e.getKey());
+            } else if (e.getValue() < 0) {
+                errors.add("Negative price for: " + e.getKey());
+            }
+        }
+        if (!errors.isEmpty()) {
+            reportRejectedBatch(errors);
+            return false;
+        }
+
+        for (Map.Entry<String, Double> e : newPrices.entrySet()) {
+            findMenuItem(e.getKey()).setBasePrice(e.getValue());
+        }
+        saveMenu();
+        System.out.println("✓ Prices updated for " + newPrices.size() + " items");
+        return true;
+    }
+
+    // Applies every availability flag in one save; nothing changes if any name is unknown
+    public synchronized boolean updateAvailability(Map<String, Boolean> availability) {
+        List<String> errors = new ArrayList<>();
+        for (String name : availability.keySet()) {
+            if (findMenuItem(name) == null) errors.add("Item not found: " + name);
+        }
+        if (!errors.isEmpty()) {
+            reportRejectedBatch(errors);
+            return false;
+        }
+
+        for (Map.Entry<String, Boolean> e : availability.entrySet()) {
+            findMenuItem(e.getKey()).setAvailable(e.getValue());
+        }
+        saveMenu();
+        System.out.println("✓ Availability updated for " + availability.size() + " items");
+        return true;
+    }
+
+    private static void reportRejectedBatch(List<String> errors) {
+        System.out.println("✗ Batch rejected, nothing was changed (" + errors.size() + " problem(s)):");
+        errors.stream().limit(MAX_REPORTED_ERRORS).forEach(e -> System.out.println("   - " + e));
+        if (errors.size() > MAX_REPORTED_ERRORS) {
+            System.out.println("   ... and " + (errors.size() - MAX_REPORTED_ERRORS) + " more");
+        }
+    }
+
+    public void displayMenu() {
+        printMenu(menuItems);
+    }
+
+    static void printMenu(List<MenuEntry> items) {
+        System.out.println("\n" + "=".repeat(75));
+        System.out.println("                        RESTAURANT MENU");
+        System.out.println("=".repeat(75));
+
+        for (ItemCategory category : ItemCategory.values()) {
+            displayMenuByCategory(items, category);
+        }
+
+        System.out.println("=".repeat(75));
+    }
+
+    private static void displayMenuByCategory(List<MenuEntry> items, ItemCategory category) {
+        System.out.println("\n--- " + category.getLabel().toUpperCase() + " ---");
+        List<MenuEntry> filteredItems = items.stream()
+            .filter(item -> item.getCategoryType() == category)
+            .collect(Collectors.toList());
+
+        for (int i = 0; i < filteredItems.size(); i++) {
+            MenuEntry item = filteredItems.get(i);
+            String availability = item.isAvailable() && !item.isSoldOut() ? "✓" : "✗";
+            String soldOut = item.isSoldOut() ? " (sold out)" : "";
+            System.out.println((i + 1) + ". " + availability + " " + item.getItemDetails() + soldOut);
+        }
+    }
+
+    public synchronized boolean updateMenuItem(String itemName, double newPrice) {
+        for (MenuEntry item : menuItems) {
+            if (item.getItemName().equalsIgnoreCase(itemName)) {
+                item.setBasePrice(newPrice);
+                System.out.println("✓ Price updated for: " + itemName);
+                saveMenu();
+                return true;
+            }
+        }
+        System.out.println("✗ Item not found: " + itemName);
+        return false;
+    }
+
+    public synchronized boolean toggleAvailability(String itemName) {
+        for (MenuEntry item : menuItems) {
+            if (item.getItemName().equalsIgnoreCase(itemName)) {
+                item.setAvailable(!item.isAvailable());
+                String status = item.isAvailable() ? "Available" : "Unavailable";
+                System.out.println("✓ " + itemName + " is now " + status);
+                saveMenu();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Sold-out marks come from the stock counts, so they are not saved with the menu
+    public synchronized boolean setSoldOut(String itemName, boolean soldOut) {
+        MenuEntry item = findMenuItem(itemName);
+        if (item == null) return false;
+        item.setSoldOut(soldOut);
+        return true;
+    }
+
+    public synchronized boolean removeMenuItem(String itemName) {
+        for (MenuEntry item : menuItems) {
+            if (item.getItemName().equalsIgnoreCase(itemName)) {
+                menuItems.remove(item);
+                rebuildIndex();
+                System.out.println("✓ Removed from menu: " + itemName);
+                saveMenu();
+                return true;
+            }
+        }
+        System.out.println("✗ Item not found: " + itemName);
+        return false;
+    }
+
+    public MenuEntry findMenuItem(String itemName) {
+        return itemName == null ? null : nameIndex.get(itemName.toLowerCase());
+    }
+
+    private void rebuildIndex() {
+        nameIndex = new HashMap<>();
+        for (MenuEntry item : menuItems) index(item);
+    }
+
+    // First item wins, matching the old linear search when names repeat
+    private void index(MenuEntry item) {
+        nameIndex.putIfAbsent(item.getItemName().toLowerCase(), item);
+    }
+
+    public synchronized ArrayList<MenuEntry> getAllItems() {
+        return new ArrayList<>(menuItems);
+    }
+
+    public List<MenuEntry> getMostPopularItems(int count) {
+        return menuItems.stream()
+            .sorted((a, b) -> Integer.compare(b.getPopularity(), a.getPopularity()))
+            .limit(count)
+            .collect(Collectors.toList());
+    }
+
+    // Schedules a write; bursts of edits are coalesced by the PersistenceScheduler
+    private void saveMenu() {
+        store.markDirty();
+    }
+
+    private void writeMenu() {
+        ArrayList<MenuEntry> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(menuItems);
+        }
+        try {
+            PersistenceScheduler.writeObjectAtomically(MENU_FILE, snapshot);
+        } catch (IOException e) {
+            System.out.println("Note: Menu changes not persisted");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean loadMenu() {
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new FileInputStream(MENU_FILE))) {
+            menuItems = (ArrayList<MenuEntry>) ois.readObject();
+            return true;
+        } catch (IOException | ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private void initializeSampleMenu() {
+        rebuildIndex();
+        addMenuItems(Arrays.asList(
+            new FoodEntry("Paneer Tikka", 250.0, "VEG", "INDIAN", 20, true),
+            new FoodEntry("Butter Chicken", 320.0, "NON-VEG", "INDIAN", 25, true),
+            new FoodEntry("Margherita Pizza", 280.0, "VEG", "ITALIAN", 15, false),
+            new FoodEntry("Hakka Noodles", 180.0, "VEG", "CHINESE", 15, false),
+            new FoodEntry("Grilled Salmon", 450.0, "NON-VEG", "CONTINENTAL", 30, false),
+            new FoodEntry("Dal Makhani", 200.0, "VEG", "INDIAN", 20, false),
+            new FoodEntry("Chicken Biryani", 280.0, "NON-VEG", "INDIAN", 30, true),
+            new FoodEntry("Veg Spring Rolls", 150.0, "VEG", "CHINESE", 12, false),
+            new BeverageEntry("Cappuccino", 120.0, "SMALL", false, "HOT"),
+            new BeverageEntry("Fresh Lime Soda", 80.0, "MEDIUM", false, "COLD"),
+            new BeverageEntry("Mango Lassi", 100.0, "LARGE", false, "COLD")));
+    }
+}
+
+// ==================== MenuImportExport.java ====================
+/**
+ * Streaming CSV and JSON import/export of menu items, plus the simple
+ * name,price and name,available files used for bulk updates. Files are
+ * read one record at a time; every record is checked and all problems are
+ * reported together, so the caller can commit a batch with a single save.
+ *
+ * CSV columns: type,name,price,available,dietary_type,cuisine,prep_minutes,
+ * spicy,serving_size,alcoholic,temperature (food leaves the beverage columns
+ * empty and vice versa). JSON is an array of objects with the same fields in
+ * camelCase.
+ */
+class MenuImportExport {
+    static final String CSV_HEADER =
+        "type,name,price,available,dietary_type,cuisine,prep_minutes,spicy,serving_size,alcoholic,temperature";
+
+    static class ImportResult {
+        final List<MenuEntry> items = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+    }
+
+    static boolean isJson(String path) {
+        return path.toLowerCase().endsWith(".json");
+    }
+
+    // ---------- Import ----------
+
+    public static ImportResult importItems(String path) throws IOException {
+        ImportResult result = new ImportResult();
+        try (BufferedReader reader = openReader(path)) {
+            if (isJson(path)) {
+                JsonObjectReader json = new JsonObjectReader(reader);
+                Map<String, String> obj;
+                int n = 0;
+                while ((obj = json.next()) != null) {
+                    n++;
+                    addRecord(result, "object " + n, obj.get("type"), obj.get("name"), obj.get("price"),
+                        obj.get("available"), obj.get("dietaryType"), obj.get("cuisine"), obj.get("prepMinutes"),
+                        obj.get("spicy"), obj.get("servingSize"), obj.get("alcoholic"), obj.get("temperature"));
+                }
+            } else {
+                String line;
+                int lineNo = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNo++;
+                    if (line.trim().isEmpty() || (lineNo == 1 && line.startsWith("type,"))) continue;
+                    List<String> f = splitCsv(line);
+                    while (f.size() < 11) f.add("");
+                    addRecord(result, "line " + lineNo, f.get(0), f.get(1), f.get(2), f.get(3), f.get(4),
+                        f.get(5), f.get(6), f.get(7), f.get(8), f.get(9), f.get(10));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void addRecord(ImportResult result, String where, String type, String name, String price,
+                                  String available, String dietary, String cuisine, String prepMinutes,
+                                  String spicy, String servingSize, String alcoholic, String temperature) {
+        try {
+            if (name == null || name.trim().isEmpty()) throw new IllegalArgumentException("missing name");
+            double basePrice = parsePrice(price);
+            MenuEntry item;
+            if ("FOOD".equalsIgnoreCase(trim(type))) {
+                int prep = isBlank(prepMinutes) ? 0 : Integer.parseInt(prepMinutes.trim());
+                item = new FoodEntry(name.trim(), basePrice, trim(dietary), trim(cuisine), prep, parseFlag(spicy, false));
+            } else if ("BEVERAGE".equalsIgnoreCase(trim(type))) {
+                item = new BeverageEntry(name.trim(), basePrice, trim(servingSize), parseFlag(alcoholic, false), trim(temperature));
+            } else {
+                throw new IllegalArgumentException("type must be FOOD or BEVERAGE, got '" + type + "'");
+            }
+            item.setAvailable(parseFlag(available, true));
+            result.items.add(item);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            result.errors.add(where + ": " + e.getMessage());
+        }
+    }
+
+    public static Map<String, Double> readPriceUpdates(String path, List<String> errors) throws IOException {
+        Map<String, Double> updates = new LinkedHashMap<>();
+        readPairs(path, errors, (name, value) -> updates.put(name, parsePrice(value)));
+        return updates;
+    }
+
+    public static Map<String, Boolean> readAvailabilityUpdates(String path, List<String> errors) throws IOException {
+        Map<String, Boolean> updates = new LinkedHashMap<>();
+        readPairs(path, errors, (name, value) -> {
+            if (isBlank(value)) throw new IllegalArgumentException("missing availability");
+            updates.put(name, parseFlag(value, true));
+        });
+        return updates;
+    }
+
+    // name,value lines; a header line starting with "name," is skipped
+    private static void readPairs(String path, List<String> errors,
+                                  java.util.function.BiConsumer<String, String> sink) throws IOException {
+        try (BufferedReader reader = openReader(path)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.trim().isEmpty() || (lineNo == 1 && line.toLowerCase().startsWith("name,"))) continue;
+                List<String> f = splitCsv(line);
+                try {
+                    if (f.size() < 2 || isBlank(f.get(0))) throw new IllegalArgumentException("expected name,value");
+                    sink.accept(f.get(0).trim(), f.get(1));
+                } catch (IllegalArgumentException e) {
+                    errors.add("line " + lineNo + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // ---------- Export ----------
+
+    public static void exportItems(List<MenuEntry> items, String path) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(path), StandardCharsets.UTF_8)))) {
+            if (isJson(path)) {
+                writer.println("[");
+                for (int i = 0; i < items.size(); i++) {
+                    writer.print("  " + toJson(items.get(i)));
+                    writer.println(i < items.size() - 1 ? "," : "");
+                }
+                writer.println("]");
+            } else {
+                writer.println(CSV_HEADER);
+                for (MenuEntry item : items) {
+                    writer.println(toCsv(item));
+                }
+            }
+            if (writer.checkError()) throw new IOException("write failed: " + path);
+        }
+    }
+
+    private static String toCsv(MenuEntry item) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(item.getCategoryType().name()).append(',')
+          .append(csvField(item.getItemName())).append(',')
+          .append(item.getBasePrice()).append(',')
+          .append(item.isAvailable()).append(',');
+        if (item instanceof FoodEntry) {
+            FoodEntry food = (FoodEntry) item;
+            sb.append(csvField(food.getDietaryType())).append(',')
+              .append(csvField(food.getCuisine())).append(',')
+              .append(food.getPreparationTime()).append(',')
+              .append(food.isSpicy()).append(",,,");
+        } else {
+            BeverageEntry drink = (BeverageEntry) item;
+            sb.append(",,,,")
+              .append(csvField(drink.getServingSize())).append(',')
+              .append(drink.isAlcoholic()).append(',')
+              .append(csvField(drink.getTemperature()));
+        }
+        return sb.toString();
+    }
+
+    private static String toJson(MenuEntry item) {
+        StringBuilder sb = new StringBuilder("{");
+        sb.append("\"type\": ").append(jsonString(item.getCategoryType().name()))
+          .append(", \"name\": ").append(jsonString(item.getItemName()))
+          .append(", \"price\": ").append(item.getBasePrice())
+          .append(", \"available\": ").append(item.isAvailable());
+        if (item instanceof FoodEntry) {
+            FoodEntry food = (FoodEntry) item;
+            sb.append(", \"dietaryType\": ").append(jsonString(food.getDietaryType()))
+              .append(", \"cuisine\": ").append(jsonString(food.getCuisine()))
+              .append(", \"prepMinutes\": ").append(food.getPreparationTime())
+              .append(", \"spicy\": ").append(food.isSpicy());
+        } else {
+            BeverageEntry drink = (BeverageEntry) item;
+            sb.append(", \"servingSize\": ").append(jsonString(drink.getServingSize()))
+              .append(", \"alcoholic\": ").append(drink.isAlcoholic())
+              .append(", \"temperature\": ").append(jsonString(drink.getTemperature()));
+        }
+        return sb.append('}').toString();
+    }
+
+    // ---------- Helpers ----------
+
+    private static BufferedReader openReader(String path) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static double parsePrice(String text) {
+        if (isBlank(text)) throw new IllegalArgumentException("missing price");
+        double price = Double.parseDouble(text.trim());
+        if (price < 0 || Double.isNaN(price) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("invalid price " + text.trim());
+        }
+        return price;
+    }
+
+    private static boolean parseFlag(String text, boolean defaultValue) {
+        if (isBlank(text)) return defaultValue;
+        String t = text.trim().toLowerCase();
+        if (t.equals("true") || t.equals("yes") || t.equals("y") || t.equals("1")) return true;
+        if (t.equals("false") || t.equals("no") || t.equals("n") || t.equals("0")) return false;
+        throw new IllegalArgumentException("expected yes/no, got '" + text.trim() + "'");
+    }
+
+    private static boolean isBlank(String s) { return s == null || s.trim().isEmpty(); }
+    private static String trim(String s) { return s == null ? null : s.trim(); }
+
+    // Splits one CSV line; fields may be quoted, with "" for a literal quote
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cur.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cur.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        fields.add(cur.toString());
+        return fields;
+    }
+
+    private static String csvField(String s) {
+        if (s == null) return "";
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0) return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String jsonString(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Minimal streaming reader for a JSON array of flat objects. Returns one
+     * object at a time with every value as text (null for JSON null), so a
+     * large catalog is never held as one parsed tree.
+     */
+    static class JsonObjectReader {
+        private final Reader in;
+        private int peeked = -2;
+        private boolean started;
+
+        JsonObjectReader(Reader in) { this.in = in; }
+
+        Map<String, String> next() throws IOException {
+            if (!started) {
+                expect('[');
+                started = true;
+                if (peekNonSpace() == ']') return null;
+            } else {
+                int c = readNonSpace();
+                if (c == ']') return null;
+                if (c != ',') throw error("expected ',' or ']'");
+            }
+
+            Map<String, String> obj = new HashMap<>();
+            expect('{');
+            if (peekNonSpace() == '}') {
+                read();
+                return obj;
+            }
+            while (true) {
+                expect('"');
+                String key = readString();
+                expect(':');
+                obj.put(key, readValue());
+                int c = readNonSpace();
+                if (c == '}') return obj;
+                if (c != ',') throw error("expected ',' or '}'");
+            }
+        }
+
+        private String readValue() throws IOException {
+            int c = peekNonSpace();
+            if (c == '"') {
+                read();
+                return readString();
+            }
+            if (c == '{' || c == '[') throw error("nested values are not supported");
+            StringBuilder sb = new StringBuilder();
+            while ((c = peek()) != -1 && c != ',' && c != '}' && !Character.isWhitespace(c)) {
+                sb.append((char) read());
+            }
+            String literal = sb.toString();
+            if (literal.isEmpty()) throw error("expected a value");
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String readString() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = read()) != '"') {
+                if (c == -1) throw error("unterminated string");
+                if (c == '\\') {
+                    int e = read();
+                    if (e == -1) throw error("unterminated string");
+                    switch (e) {
+                        case 'n': sb.append('\n'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'u':
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(read(), 16);
+                                if (digit < 0) throw error("invalid \\u escape");
+                                code = code * 16 + digit;
+                            }
+                            sb.append((char) code);
+                            break;
+                        default: sb.append((char) e);
+                    }
+                } else {
+                    sb.append((char) c);
+                }
+            }
+            return sb.toString();
+        }
+
+        private void expect(char expected) throws IOException {
+            if (readNonSpace() != expected) throw error("expected '" + expected + "'");
+        }
+
+        private int readNonSpace() throws IOException {
+            int c;
+            do { c = read(); } while (c != -1 && Character.isWhitespace(c));
+            return c;
+        }
+
+        private int peekNonSpace() throws IOException {
+            while (peek() != -1 && Character.isWhitespace(peek())) read();
+            return peek();
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) peeked = in.read();
+            return peeked;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            peeked = -2;
+            return c;
+        }
+
+        private IOException error(String message) {
+            return new IOException("Malformed JSON: " + message);
+        }
+    }
+}
+
+// ==================== OutletMenu.java ====================
+/**
+ * An outlet's view of the shared central menu. Items come from the central
+ * MenuManager; an outlet may override price and availability locally, and
+ * only those overrides are stored in the outlet's own file.
+ */
+class OutletMenu implements MenuCatalog {
+    private final MenuManager centralMenu;
+    private final String overrideFile;
+    private final PersistenceScheduler.Store store;
+    private HashMap<String, MenuOverride> overrides;
+    // Working copies of overridden items; they also carry the outlet's popularity
+    // counts. Orders never hold these: OrderTicket stores its own copy of each item.
+    private final Map<String, MenuEntry> localEntries = new HashMap<>();
+    // Lower-cased names this outlet's stock has run out of; not saved, the InventoryManager restores them
+    private final Set<String> soldOut = ConcurrentHashMap.newKeySet();
+
+    static class MenuOverride implements Serializable {
+        private static final long serialVersionUID = 1L;
+        Double price;
+        Boolean available;
+    }
+
+    public OutletMenu(MenuManager centralMenu, Outlet outlet) {
+        this.centralMenu = centralMenu;
+        this.overrideFile = outlet.getMenuOverrideFile();
+        this.overrides = new HashMap<>();
+        this.store = PersistenceScheduler.getDefault().register(this::writeOverrides);
+        loadOverrides();
+    }
+
+    @Override
+    public void displayMenu() {
+        MenuManager.printMenu(getAllItems());
+    }
+
+    @Override
+    public MenuEntry findMenuItem(String itemName) {
+        return localize(centralMenu.findMenuItem(itemName));
+    }
+
+    @Override
+    public ArrayList<MenuEntry> getAllItems() {
+        ArrayList<MenuEntry> items = new ArrayList<>();
+        for (MenuEntry item : centralMenu.getAllItems()) {
+            items.add(localize(item));
+        }
+        return items;
+    }
+
+    @Override
+    public List<MenuEntry> getMostPopularItems(int count) {
+        return getAllItems().stream()
+            .sorted((a, b) -> Integer.compare(b.getPopularity(), a.getPopularity()))
+            .limit(count)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized boolean updateMenuItem(String itemName, double newPrice) {
+        MenuEntry item = findMenuItem(itemName);
+        if (item == null) {
+            System.out.println("✗ Item not found: " + itemName);
+            return false;
+        }
+        if (newPrice < 0) {
+            System.out.println("✗ Price must not be negative: " + item.getItemName());
+            return false;
+        }
+        overrideFor(item).price = newPrice;
+        System.out.println("✓ Outlet price updated for: " + item.getItemName());
+        saveOverrides();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean toggleAvailability(String itemName) {
+        MenuEntry item = findMenuItem(itemName);
+        if (item == null) return false;
+
+        boolean nowAvailable = !item.isAvailable();
+        overrideFor(item).available = nowAvailable;
+        String status = nowAvailable ? "Available" : "Unavailable";
+        System.out.println("✓ " + item.getItemName() + " is now " + status + " at this outlet");
+        saveOverrides();
+        return true;
+    }
+
+    // Kept apart from the overrides, so restocking never overrides head office's availability
+    @Override
+    public synchronized boolean setSoldOut(String itemName, boolean isSoldOut) {
+        MenuEntry item = centralMenu.findMenuItem(itemName);
+        if (item == null) return false;
+        String key = item.getItemName().toLowerCase();
+        if (isSoldOut) {
+            soldOut.add(key);
+        } else {
+            soldOut.remove(key);
+        }
+        return true;
+    }
+
+    private MenuOverride overrideFor(MenuEntry item) {
+        return overrides.computeIfAbsent(item.getItemName().toLowerCase(), k -> new MenuOverride());
+    }
+
+    private MenuEntry localize(MenuEntry central) {
+        if (central == null) return null;
+        String key = central.getItemName().toLowerCase();
+        MenuOverride override = overrides.get(key);
+        boolean isSoldOut = soldOut.contains(key);
+        if (override == null) {
+            if (!isSoldOut) return central;
+            MenuEntry marked = central.copy();
+            marked.setSoldOut(true);
+            return marked;
+        }
+
+        MenuEntry local = localEntries.computeIfAbsent(key, k -> central.copy());
+        // Re-apply on every lookup so central edits to non-overridden fields show through
+        local.setBasePrice(override.price != null ? override.price : central.getBasePrice());
+        local.setAvailable(override.available != null ? override.available : central.isAvailable());
+        local.setSoldOut(isSoldOut);
+        return local;
+    }
+
+    private void saveOverrides() {
+        store.markDirty();
+    }
+
+    private void writeOverrides() {
+        HashMap<String, MenuOverride> snapshot = new HashMap<>();
+        synchronized (this) {
+            // Copy the values too: the UI thread edits overrides in place
+            overrides.forEach((name, o) -> {
+                MenuOverride copy = new MenuOverride();
+                copy.price = o.price;
+                copy.available = o.available;
+                snapshot.put(name, copy);
+            });
+        }
+        try {
+            PersistenceScheduler.writeObjectAtomically(overrideFile, snapshot);
+        } catch (IOException e) {
+            System.out.println("Note: Outlet menu changes not persisted");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadOverrides() {
+        File f = new File(overrideFile);
+        if (!f.exists()) return;
+
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(f))) {
+            overrides = (HashMap<String, MenuOverride>) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            System.out.println("Note: Starting with no outlet menu overrides.");
+        }
+    }
+}
+
+
+// ==================== InventoryManager.java ====================
+/**
+ * Stock counts for the kitchen behind this till, with one file per outlet.
+ * The counts are held in memory and saved through the PersistenceScheduler,
+ * so they are shared by the terminals (threads) of one till process, not
+ * by separate processes. Stock is counted per ingredient. An item with a recipe draws on its
+ * ingredients; any other item draws on a count kept under its own name.
+ * Anything without a count is never limited.
+ *
+ * Every count is an AtomicInteger. Terminals ordering the same popular item
+ * therefore contend only on a compare-and-set, never on a lock. A recipe is
+ * reserved one ingredient at a time, and if a later ingredient is short,
+ * whatever was already taken is given back. When an item can no longer be
+ * made it is marked sold out on the menu, and restocking clears the mark.
+ * Being sold out is kept apart from the item's availability, so restocking
+ * never switches on an item that head office or the outlet switched off.
+ */
+class InventoryManager {
+    private static final String INVENTORY_FILE = "inventory_data.ser";
+
+    private final MenuCatalog menu;
+    private final String inventoryFile;
+    private final PersistenceScheduler.Store store;
+    // Lower-cased ingredient (or item) name -> units in stock. Counts are never replaced, only updated.
+    private final ConcurrentHashMap<String, AtomicInteger> stock = new ConcurrentHashMap<>();
+    // Lower-cased item name -> ingredient -> units per serving
+    private final ConcurrentHashMap<String, Map<String, Integer>> recipes = new ConcurrentHashMap<>();
+    // Rebuilt whenever a recipe changes: which recipes use an ingredient, and the most any one needs
+    private volatile Map<String, List<String>> usedBy = Collections.emptyMap();
+    private volatile Map<String, Integer> largestServing = Collections.emptyMap();
+    // Items marked sold out on the menu; saved so the marks survive a restart
+    private final Set<String> soldOut = ConcurrentHashMap.newKeySet();
+
+    static class Snapshot implements Serializable {
+        private static final long serialVersionUID = 1L;
+        HashMap<String, Integer> stock = new HashMap<>();
+        HashMap<String, TreeMap<String, Integer>> recipes = new HashMap<>();
+        HashSet<String> soldOut = new HashSet<>();
+    }
+
+    // Single-outlet store using inventory_data.ser
+    public InventoryManager(MenuCatalog menu) {
+        this(menu, INVENTORY_FILE);
+    }
+
+    public InventoryManager(MenuCatalog menu, Outlet outlet) {
+        this(menu, outlet.getInventoryFile());
+    }
+
+    private InventoryManager(MenuCatalog menu, String inventoryFile) {
+        this.menu = menu;
+        this.inventoryFile = inventoryFile;
+        this.store = PersistenceScheduler.getDefault().register(this::writeInventory);
+        loadInventory();
+        for (String itemKey : soldOut) menu.setSoldOut(itemKey, true);
+    }
+
+    // ---------- Order entry ----------
+
+    /**
+     * Takes one serving's worth of stock for the item. Returns false, with
+     * nothing taken, if any ingredient is short.
+     */
+    public boolean reserve(MenuEntry item) {
+        String key = item.getItemName().toLowerCase();
+        Map<String, Integer> needs = needsFor(key);
+        AtomicInteger[] taken = new AtomicInteger[needs.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> need : needs.entrySet()) {
+            AtomicInteger count = stock.get(need.getKey());
+            if (count != null) {
+                int left = take(count, need.getValue());
+                if (left < 0) {
+                    giveBack(needs, taken, i);
+                    refresh(key);
+                    return false;
+                }
+                taken[i] = count;
+            }
+            i++;
+        }
+
+        // Only once all of it is taken, so a rolled-back attempt never switches items off
+        i = 0;
+        boolean changed = false;
+        for (String ingredient : needs.keySet()) {
+            AtomicInteger count = taken[i++];
+            if (count == null) continue;
+            changed = true;
+            if (count.get() < largestServing(ingredient)) refreshUsersOf(ingredient);
+        }
+        if (changed) store.markDirty();
+        return true;
+    }
+
+    /** Gives back the stock taken for these items, e.g. when an order is cancelled. */
+    public void releaseAll(List<MenuEntry> items) {
+        boolean changed = false;
+        for (MenuEntry item : items) {
+            for (Map.Entry<String, Integer> need : needsFor(item.getItemName().toLowerCase()).entrySet()) {
+                AtomicInteger count = stock.get(need.getKey());
+                if (count == null) continue;
+                int before = count.getAndAdd(need.getValue());
+                changed = true;
+                if (before < largestServing(need.getKey())) refreshUsersOf(need.getKey());
+            }
+        }
+        if (changed) store.markDirty();
+    }
+
+    // ---------- Admin ----------
+
+    /** Sets the count after a stock-take; tracking starts with the first count. */
+    public void setStock(String name, int units) {
+        if (units < 0) throw new IllegalArgumentException("stock must not be negative");
+        String key = name.trim().toLowerCase();
+        stock.computeIfAbsent(key, k -> new AtomicInteger()).set(units);
+        refreshUsersOf(key);
+        store.markDirty();
+        System.out.println("✓ Stock of " + name.trim() + " set to " + units);
+    }
+
+    /** Adds a delivery to the count (tracking starts from zero if it wasn't tracked). */
+    public void addStock(String name, int units) {
+        if (units <= 0) throw new IllegalArgumentException("delivery must be at least 1");
+        String key = name.trim().toLowerCase();
+        int now = stock.computeIfAbsent(key, k -> new AtomicInteger()).addAndGet(units);
+        refreshUsersOf(key);
+        store.markDirty();
+        System.out.println("✓ Stock of " + name.trim() + " is now " + now);
+    }
+
+    /**
+     * Sets what one serving of a menu item uses, e.g. {paneer=2, onion=1}.
+     * An empty recipe makes the item draw on its own count again.
+     */
+    public synchronized void setRecipe(String itemName, Map<String, Integer> ingredients) {
+        MenuEntry item = menu.findMenuItem(itemName);
+        if (item == null) throw new IllegalArgumentException("item not found: " + itemName);
+        TreeMap<String, Integer> recipe = new TreeMap<>();
+        for (Map.Entry<String, Integer> e : ingredients.entrySet()) {
+            if (e.getValue() <= 0) throw new IllegalArgumentException("units must be at least 1: " + e.getKey());
+            recipe.put(e.getKey().trim().toLowerCase(), e.getValue());
+        }
+
+        String key = item.getItemName().toLowerCase();
+        if (recipe.isEmpty()) {
+            recipes.remove(key);
+        } else {
+            recipes.put(key, Collections.unmodifiableMap(recipe));
+        }
+        rebuildUsage();
+        refresh(key);
+        store.markDirty();
+        System.out.println("✓ Recipe for " + item.getItemName() + (recipe.isEmpty() ? " removed" : ": " + recipe));
+    }
+
+    // Parses "paneer=2, onion=1" (units default to 1)
+    static Map<String, Integer> parseRecipe(String text) {
+        Map<String, Integer> recipe = new LinkedHashMap<>();
+        for (String part : text.split(",")) {
+            if (part.trim().isEmpty()) continue;
+            String[] kv = part.split("=", 2);
+            String name = kv[0].trim();
+            if (name.isEmpty()) throw new IllegalArgumentException("missing ingredient name in: " + part.trim());
+            try {
+                recipe.put(name, kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid units for " + name + ": " + kv[1].trim());
+            }
+        }
+        return recipe;
+    }
+
+    public Map<String, Integer> getStockLevels() {
+        Map<String, Integer> levels = new TreeMap<>();
+        stock.forEach((name, count) -> levels.put(name, count.get()));
+        return levels;
+    }
+
+    public Map<String, Map<String, Integer>> getRecipes() {
+        return new TreeMap<>(recipes);
+    }
+
+    // ---------- Internals ----------
+
+    private Map<String, Integer> needsFor(String itemKey) {
+        Map<String, Integer> recipe = recipes.get(itemKey);
+        return recipe != null ? recipe : Collections.singletonMap(itemKey, 1);
+    }
+
+    // Lock-free decrement that never goes below zero; returns what is left, or -1 if short
+    private static int take(AtomicInteger count, int units) {
+        while (true) {
+            int current = count.get();
+            if (current < units) return -1;
+            if (count.compareAndSet(current, current - units)) return current - units;
+        }
+    }
+
+    private static void giveBack(Map<String, Integer> needs, AtomicInteger[] taken, int upTo) {
+        int i = 0;
+        for (int units : needs.values()) {
+            if (i >= upTo) break;
+            if (taken[i] != null) taken[i].addAndGet(units);
+            i++;
+        }
+    }
+
+    private boolean canMake(String itemKey) {
+        for (Map.Entry<String, Integer> need : needsFor(itemKey).entrySet()) {
+            AtomicInteger count = stock.get(need.getKey());
+            if (count != null && count.get() < need.getValue()) return false;
+        }
+        return true;
+    }
+
+    // Below this level at least one user of the ingredient can no longer be made
+    private int largestServing(String ingredient) {
+        int fromRecipes = largestServing.getOrDefault(ingredient, 0);
+        return recipes.containsKey(ingredient) ? fromRecipes : Math.max(fromRecipes, 1);
+    }
+
+    private void refreshUsersOf(String ingredient) {
+        for (String itemKey : usedBy.getOrDefault(ingredient, Collections.emptyList())) {
+            refresh(itemKey);
+        }
+        if (!recipes.containsKey(ingredient)) refresh(ingredient);
+    }
+
+    // Rare (only near zero), so a lock here costs nothing on the reservation path
+    private synchronized void refresh(String itemKey) {
+        if (!canMake(itemKey)) {
+            MenuEntry item = menu.findMenuItem(itemKey);
+            if (item != null && !soldOut.contains(itemKey) && menu.setSoldOut(itemKey, true)) {
+                soldOut.add(itemKey);
+                System.out.println("✓ " + item.getItemName() + " is now sold out");
+                store.markDirty();
+            }
+        } else if (soldOut.remove(itemKey)) {
+            MenuEntry item = menu.findMenuItem(itemKey);
+            menu.setSoldOut(itemKey, false);
+            if (item != null) System.out.println("✓ " + item.getItemName() + " is back in stock");
+            store.markDirty();
+        }
+    }
+
+    private void rebuildUsage() {
+        Map<String, List<String>> users = new HashMap<>();
+        Map<String, Integer> largest = new HashMap<>();
+        recipes.forEach((itemKey, recipe) -> recipe.forEach((ingredient, units) -> {
+            users.computeIfAbsent(ingredient, k -> new ArrayList<>()).add(itemKey);
+            largest.merge(ingredient, units, Math::max);
+        }));
+        usedBy = users;
+        largestServing = largest;
+    }
+
+    private void writeInventory() {
+        Snapshot snapshot = new Snapshot();
+        stock.forEach((name, count) -> snapshot.stock.put(name, count.get()));
+        recipes.forEach((item, recipe) -> snapshot.recipes.put(item, new TreeMap<>(recipe)));
+        snapshot.soldOut.addAll(soldOut);
+        try {
+            PersistenceScheduler.writeObjectAtomically(inventoryFile, snapshot);
+        } catch (IOException e) {
+            System.out.println("Note: Inventory changes not persisted");
         }
     }
 
-    public void addMenuItem(MenuEntry item) {
-        if (item != null) {
-            menuItems.add(item);
-            System.out.println("✓ Menu item added: " + item.getItemName());
-            saveMenu();
+    private void loadInventory() {
+        File f = new File(inventoryFile);
+        if (!f.exists()) return;
+
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(f))) {
+            Snapshot snapshot = (Snapshot) ois.readObject();
+            snapshot.stock.forEach((name, units) -> stock.put(name, new AtomicInteger(units)));
+            snapshot.recipes.forEach((item, recipe) -> recipes.put(item, Collections.unmodifiableMap(recipe)));
+            soldOut.addAll(snapshot.soldOut);
+            rebuildUsage();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.out.println("Note: Starting with no inventory tracking.");
         }
     }
+}
 
-    public void displayMenu() {
-        System.out.println("\n" + "=".repeat(75));
-        System.out.println("                        RESTAURANT MENU");
-        System.out.println("=".repeat(75));
-
-        displayMenuByCategory("Food");
-        displayMenuByCategory("Beverage");
 
-        System.out.println("=".repeat(75));
+// ==================== BatchRunner.java ====================
+/**
+ * Non-interactive mode: runs a command script (or stdin) against the same
+ * managers as the interactive menu, without prompts, menu redraws or
+ * "press Enter" pauses. One command per line; blank lines and lines
+ * starting with '#' are skipped.
+ *
+ *   order <table> <customer>    start an order        add <item>       add an item
+ *   note <text>                 special instructions  discount <pct>   apply a discount
+ *   place                       save the open order   cancel           drop the open order
+ *   status <orderId> <STATUS>   change order status   price <amount> <item>
+ *   toggle <item>               flip availability     import|export <file>
+ *   merge <table> <onto>        join two tables       split <table>    undo a merge
+ *   owed <table>                amount the table owes
+ *   stock [<qty> <name>]        set (or list) stock   restock <qty> <name>  add a delivery
+ *   recipe <item>: <ingredient>=<units>, ...          what one serving uses
+ *   history [from=yyyy-MM-dd[THH:mm]] [to=..] [status=S] [table=N] [min=amount] [customer=name]
+ *   menu | report | tables | flush
+ *
+ * A failing line is reported with its line number and the run carries on.
+ * At the end, the time spent per command is printed.
+ */
+class BatchRunner {
+    private final MenuManager menuManager;
+    private final MenuCatalog menu;
+    private final OrderManager orderManager;
+    private final InventoryManager inventory;
+
+    private OrderTicket openOrder;
+    private int errorCount;
+    // command -> {count, total nanos, max nanos}
+    private final Map<String, long[]> timings = new TreeMap<>();
+
+    public BatchRunner(MenuManager menuManager, MenuCatalog menu, OrderManager orderManager,
+                       InventoryManager inventory) {
+        this.menuManager = menuManager;
+        this.menu = menu;
+        this.orderManager = orderManager;
+        this.inventory = inventory;
     }
 
-    private void displayMenuByCategory(String category) {
-        System.out.println("\n--- " + category.toUpperCase() + " ---");
-        List<MenuEntry> filteredItems = menuItems.stream()
-            .filter(item -> item.getCategory().equalsIgnoreCase(category))
-            .collect(Collectors.toList());
+    /** Runs every line of the script and returns the number of failed lines. */
+    public int run(BufferedReader script) throws IOException {
+        long start = System.nanoTime();
+        String line;
+        int lineNo = 0;
+        int commandCount = 0;
+        while ((line = script.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] parts = line.split("\\s+", 2);
+            String command = parts[0].toLowerCase();
+            String args = parts.length > 1 ? parts[1].trim() : "";
+
+            long t0 = System.nanoTime();
+            try {
+                execute(command, args);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                errorCount++;
+                System.out.println("✗ line " + lineNo + " (" + command + "): " + e.getMessage());
+            }
+            record(command, System.nanoTime() - t0);
+            commandCount++;
+        }
 
-        for (int i = 0; i < filteredItems.size(); i++) {
-            MenuEntry item = filteredItems.get(i);
-            String availability = item.isAvailable() ? "✓" : "✗";
-            System.out.println((i + 1) + ". " + availability + " " + item.getItemDetails());
+        if (openOrder != null) {
+            errorCount++;
+            inventory.releaseAll(openOrder.getItems());
+            System.out.println("✗ Order #" + openOrder.getOrderId() + " was never placed and has been dropped");
         }
+        printTimings(commandCount, System.nanoTime() - start);
+        return errorCount;
     }
 
-    public boolean updateMenuItem(String itemName, double newPrice) {
-        for (MenuEntry item : menuItems) {
-            if (item.getItemName().equalsIgnoreCase(itemName)) {
-                item.setBasePrice(newPrice);
-                System.out.println("✓ Price updated for: " + itemName);
-                saveMenu();
-                return true;
+    private void execute(String command, String args) {
+        switch (command) {
+            case "order": {
+                if (openOrder != null) throw new IllegalStateException("order #" + openOrder.getOrderId() + " is still open");
+                String[] a = args.split("\\s+", 2);
+                int table = parseInt(a[0], "table number");
+                if (!TableSessionTracker.isValidTable(table)) throw new IllegalArgumentException("invalid table number: " + table);
+                openOrder = orderManager.createOrder(table, a.length > 1 ? a[1] : "");
+                break;
+            }
+            case "add": {
+                OrderTicket order = requireOpenOrder();
+                MenuEntry item = menu.findMenuItem(args);
+                if (item == null) throw new IllegalArgumentException("item not found: " + args);
+                if (!item.isAvailable()) throw new IllegalArgumentException("item not available: " + args);
+                if (!order.addEntry(item, inventory)) throw new IllegalStateException("out of stock: " + args);
+                break;
+            }
+            case "note":
+                requireOpenOrder().setSpecialInstructions(args);
+                break;
+            case "discount": {
+                double pct = parseDouble(args, "discount");
+                if (pct < 0 || pct > 100) throw new IllegalArgumentException("discount must be 0-100");
+                requireOpenOrder().applyDiscount(pct);
+                break;
+            }
+            case "place":
+            case "done": {
+                OrderTicket order = requireOpenOrder();
+                openOrder = null;
+                if (order.getItems().isEmpty()) throw new IllegalStateException("order has no items, not placed");
+                orderManager.addOrder(order);
+                System.out.printf("✓ Order #%d placed: ₹%.2f%n", order.getOrderId(), order.computeTotalWithTax());
+                break;
+            }
+            case "cancel":
+                inventory.releaseAll(requireOpenOrder().getItems());
+                openOrder = null;
+                break;
+            case "status": {
+                String[] a = args.split("\\s+");
+                if (a.length != 2) throw new IllegalArgumentException("usage: status <orderId> <STATUS>");
+                OrderTicket order = orderManager.findOrderById(parseInt(a[0].replace("#", ""), "order id"));
+                if (order == null) throw new IllegalArgumentException("order not found: " + a[0]);
+                OrderStatus next = OrderStatus.fromName(a[1]);
+                if (!orderManager.updateStatus(order, next)) {
+                    throw new IllegalStateException("cannot move from " + order.getStatus() + " to " + next);
+                }
+                break;
+            }
+            case "price": {
+                String[] a = args.split("\\s+", 2);
+                if (a.length != 2) throw new IllegalArgumentException("usage: price <amount> <item>");
+                double price = parseDouble(a[0], "price");
+                if (price < 0) throw new IllegalArgumentException("price must not be negative");
+                if (!menu.updateMenuItem(a[1], price)) throw new IllegalArgumentException("item not found: " + a[1]);
+                break;
+            }
+            case "toggle":
+                if (!menu.toggleAvailability(args)) throw new IllegalArgumentException("item not found: " + args);
+                break;
+            case "import":
+                importItems(args);
+                break;
+            case "export":
+                try {
+                    MenuImportExport.exportItems(menuManager.getAllItems(), args);
+                } catch (IOException e) {
+                    throw new IllegalStateException("could not export: " + e.getMessage());
+                }
+                break;
+            case "menu":
+                menu.displayMenu();
+                break;
+            case "report":
+                DineFlow.printReport(orderManager);
+                break;
+            case "history":
+                printHistory(args);
+                break;
+            case "tables":
+                DineFlow.printTableStatus(orderManager.getTables());
+                break;
+            case "owed": {
+                int table = parseInt(args, "table number");
+                System.out.printf("Table %d owes ₹%.2f%n", table, orderManager.getTables().getAmountOwed(table));
+                break;
+            }
+            case "merge": {
+                String[] a = args.split("\\s+");
+                if (a.length != 2) throw new IllegalArgumentException("usage: merge <table> <onto>");
+                orderManager.getTables().merge(parseInt(a[0], "table number"), parseInt(a[1], "table number"));
+                break;
+            }
+            case "split":
+                orderManager.getTables().split(parseInt(args, "table number"));
+                break;
+            case "stock":
+            case "restock": {
+                if (args.isEmpty() && command.equals("stock")) {
+                    DineFlow.printStockLevels(inventory);
+                    break;
+                }
+                String[] a = args.split("\\s+", 2);
+                if (a.length != 2) throw new IllegalArgumentException("usage: " + command + " <qty> <name>");
+                int qty = parseInt(a[0], "quantity");
+                if (command.equals("stock")) inventory.setStock(a[1], qty);
+                else inventory.addStock(a[1], qty);
+                break;
+            }
+            case "recipe": {
+                String[] a = args.split(":", 2);
+                if (a.length != 2) throw new IllegalArgumentException("usage: recipe <item>: <ingredient>=<units>, ...");
+                inventory.setRecipe(a[0].trim(), InventoryManager.parseRecipe(a[1]));
+                break;
             }
+            case "flush":
+                PersistenceScheduler.getDefault().flush();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown command");
         }
-        System.out.println("✗ Item not found: " + itemName);
-        return false;
     }
 
-    public boolean toggleAvailability(String itemName) {
-        for (MenuEntry item : menuItems) {
-            if (item.getItemName().equalsIgnoreCase(itemName)) {
-                item.setAvailable(!item.isAvailable());
-                String status = item.isAvailable() ? "Available" : "Unavailable";
-                System.out.println("✓ " + itemName + " is now " + status);
-                saveMenu();
-                return true;
+    // customer= takes the rest of the line, so it must come last
+    private void printHistory(String args) {
+        OrderQuery query = new OrderQuery().pageSize(500);
+        String rest = args;
+        while (!rest.isEmpty()) {
+            String[] kv = rest.split("=", 2);
+            if (kv.length != 2) throw new IllegalArgumentException("expected key=value, got: " + rest);
+            String key = kv[0].trim().toLowerCase();
+            String value;
+            if (key.equals("customer")) {
+                value = kv[1].trim();
+                rest = "";
+            } else {
+                String[] v = kv[1].trim().split("\\s+", 2);
+                value = v[0];
+                rest = v.length > 1 ? v[1].trim() : "";
+            }
+            switch (key) {
+                case "from": query.from(OrderQuery.parseTime(value, false)); break;
+                case "to": query.to(OrderQuery.parseTime(value, true)); break;
+                case "status": query.status(OrderStatus.fromName(value)); break;
+                case "table": query.table(parseInt(value, "table number")); break;
+                case "min": query.minTotal(parseDouble(value, "minimum total")); break;
+                case "customer": query.customer(value); break;
+                default: throw new IllegalArgumentException("unknown filter: " + key);
             }
         }
-        return false;
-    }
 
-    public boolean removeMenuItem(String itemName) {
-        for (MenuEntry item : menuItems) {
-            if (item.getItemName().equalsIgnoreCase(itemName)) {
-                menuItems.remove(item);
-                System.out.println("✓ Removed from menu: " + itemName);
-                saveMenu();
-                return true;
+        DineFlow.printOrderHeader();
+        int count = 0;
+        int cursor = 0;
+        do {
+            OrderQuery.Page page = orderManager.query(query, cursor);
+            for (OrderTicket order : page.orders) {
+                DineFlow.printOrderRow(order);
             }
-        }
-        System.out.println("✗ Item not found: " + itemName);
-        return false;
+            count += page.orders.size();
+            cursor = page.nextCursor;
+        } while (cursor >= 0);
+        System.out.println(count + " order(s)");
     }
 
-    public MenuEntry findMenuItem(String itemName) {
-        for (MenuEntry item : menuItems) {
-            if (item.getItemName().equalsIgnoreCase(itemName)) {
-                return item;
+    private void importItems(String path) {
+        try {
+            MenuImportExport.ImportResult result = MenuImportExport.importItems(path);
+            if (!result.errors.isEmpty()) {
+                throw new IllegalArgumentException(result.errors.size() + " invalid record(s), first: " + result.errors.get(0));
             }
+            if (!menuManager.importMenuItems(result.items)) {
+                throw new IllegalArgumentException("import rejected");
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("could not import: " + e.getMessage());
         }
-        return null;
     }
 
-    public ArrayList<MenuEntry> getAllItems() {
-        return new ArrayList<>(menuItems);
+    private OrderTicket requireOpenOrder() {
+        if (openOrder == null) throw new IllegalStateException("no open order (use: order <table> <customer>)");
+        return openOrder;
     }
 
-    public List<MenuEntry> getMostPopularItems(int count) {
-        return menuItems.stream()
-            .sorted((a, b) -> Integer.compare(b.getPopularity(), a.getPopularity()))
-            .limit(count)
-            .collect(Collectors.toList());
+    private static int parseInt(String text, String what) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + what + ": " + text);
+        }
     }
 
-    private void saveMenu() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(MENU_FILE))) {
-            oos.writeObject(menuItems);
-        } catch (IOException e) {
-            System.out.println("Note: Menu changes not persisted");
+    private static double parseDouble(String text, String what) {
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + what + ": " + text);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private boolean loadMenu() {
-        try (ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(MENU_FILE))) {
-            menuItems = (ArrayList<MenuEntry>) ois.readObject();
-            return true;
-        } catch (IOException | ClassNotFoundException e) {
-            return false;
-        }
+    private void record(String command, long nanos) {
+        long[] t = timings.computeIfAbsent(command, k -> new long[3]);
+        t[0]++;
+        t[1] += nanos;
+        t[2] = Math.max(t[2], nanos);
     }
 
-    private void initializeSampleMenu() {
-        addMenuItem(new FoodEntry("Paneer Tikka", 250.0, "VEG", "INDIAN", 20, true));
-        addMenuItem(new FoodEntry("Butter Chicken", 320.0, "NON-VEG", "INDIAN", 25, true));
-        addMenuItem(new FoodEntry("Margherita Pizza", 280.0, "VEG", "ITALIAN", 15, false));
-        addMenuItem(new FoodEntry("Hakka Noodles", 180.0, "VEG", "CHINESE", 15, false));
-        addMenuItem(new FoodEntry("Grilled Salmon", 450.0, "NON-VEG", "CONTINENTAL", 30, false));
-        addMenuItem(new FoodEntry("Dal Makhani", 200.0, "VEG", "INDIAN", 20, false));
-        addMenuItem(new FoodEntry("Chicken Biryani", 280.0, "NON-VEG", "INDIAN", 30, true));
-        addMenuItem(new FoodEntry("Veg Spring Rolls", 150.0, "VEG", "CHINESE", 12, false));
-        addMenuItem(new BeverageEntry("Cappuccino", 120.0, "SMALL", false, "HOT"));
-        addMenuItem(new BeverageEntry("Fresh Lime Soda", 80.0, "MEDIUM", false, "COLD"));
-        addMenuItem(new BeverageEntry("Mango Lassi", 100.0, "LARGE", false, "COLD"));
+    private void printTimings(int commandCount, long elapsedNanos) {
+        System.out.println("\n" + "=".repeat(75));
+        System.out.println("⏱️  BATCH TIMING");
+        System.out.println("=".repeat(75));
+        System.out.printf("%-12s %10s %14s %12s %12s%n", "Command", "Count", "Total (ms)", "Avg (µs)", "Max (µs)");
+        System.out.println("-".repeat(75));
+        for (Map.Entry<String, long[]> e : timings.entrySet()) {
+            long[] t = e.getValue();
+            System.out.printf("%-12s %10d %14.2f %12.1f %12.1f%n",
+                e.getKey(), t[0], t[1] / 1e6, t[1] / 1e3 / t[0], t[2] / 1e3);
+        }
+        System.out.println("-".repeat(75));
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%d commands in %.3f s (%.0f ops/s), %d error(s)%n",
+            commandCount, seconds, seconds > 0 ? commandCount / seconds : 0.0, errorCount);
+        System.out.println("=".repeat(75));
     }
 }
 
 // ==================== DineFlow.java (Main Application) ====================
 public class DineFlow {
-    private MenuManager menuManager;
+    private MenuManager menuManager; // Central menu (add/remove items)
+    private MenuCatalog menu;        // What this till sells: central menu or outlet view
     private OrderManager orderManager; // Changed from ArrayList to Manager
+    private InventoryManager inventory;
+    private Outlet outlet;
     private Scanner scanner;
+    private final long startupNanos;
 
     public DineFlow() {
-        this.menuManager = new MenuManager();
-        this.orderManager = new OrderManager(); // Initialize Manager
+        this(null);
+    }
+
+    public DineFlow(Outlet outlet) {
+        long start = System.nanoTime();
+        this.outlet = outlet;
+        // The menu loads on another thread while the order store starts up.
+        // Order history itself keeps loading in the background after this returns.
+        CompletableFuture<MenuManager> centralMenu = CompletableFuture.supplyAsync(MenuManager::new);
+        if (outlet == null) {
+            this.orderManager = new OrderManager(); // Initialize Manager
+            this.menuManager = centralMenu.join();
+            this.menu = menuManager;
+            this.inventory = new InventoryManager(menu);
+        } else {
+            this.orderManager = new OrderManager(outlet);
+            this.menuManager = centralMenu.join();
+            this.menu = new OutletMenu(menuManager, outlet);
+            this.inventory = new InventoryManager(menu, outlet);
+        }
+        orderManager.attachInventory(inventory);
         this.scanner = new Scanner(System.in);
+        this.startupNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Prints one machine-readable line of startup timings, so they can be
+     * tracked from release to release:
+     * ready_ms (until the first prompt could be shown), history_ms (until
+     * order history finished loading in the background) and jvm_uptime_ms.
+     */
+    public void printStartupTimes() {
+        long historyStart = System.nanoTime();
+        orderManager.awaitHistory();
+        long historyNanos = startupNanos + (System.nanoTime() - historyStart);
+        System.out.printf(Locale.ROOT, "startup ready_ms=%.1f history_ms=%.1f orders=%d menu_items=%d jvm_uptime_ms=%d%n",
+            startupNanos / 1e6, historyNanos / 1e6, orderManager.getAllOrders().size(),
+            menuManager.getAllItems().size(),
+            java.lang.management.ManagementFactory.getRuntimeMXBean().getUptime());
     }
 
     public void start() {
@@ -497,6 +3026,9 @@ public class DineFlow {
         System.out.println("\n" + "=".repeat(75));
         System.out.println("          🍽️  DineFlow  🍽️");
         System.out.println("          Developed by: Aryan");
+        if (outlet != null) {
+            System.out.println("          Outlet: " + outlet.getCode());
+        }
         System.out.println("=".repeat(75));
 
         boolean running = true;
@@ -513,7 +3045,9 @@ public class DineFlow {
                 case 6: generateReports(); break;
                 case 7: searchMenu(); break;
                 case 8: viewPopularItems(); break;
-                case 9:
+                case 9: viewTableStatus(); break;
+                case 10: browseOrderHistory(); break;
+                case 0:
                     running = false;
                     System.out.println("\n" + "=".repeat(75));
                     System.out.println("   Thank you for using DineFlow! 👋");
@@ -528,6 +3062,7 @@ public class DineFlow {
             }
         }
         scanner.close();
+        PersistenceScheduler.getDefault().shutdown();
     }
 
     private void displayMainMenu() {
@@ -541,12 +3076,14 @@ public class DineFlow {
         System.out.println("6. 📊 Generate Reports");
         System.out.println("7. 🔍 Search Menu Items");
         System.out.println("8. ⭐ View Popular Items");
-        System.out.println("9. 🚪 Exit");
+        System.out.println("9. 🪑 Table Status");
+        System.out.println("10. 🗓️  Order History");
+        System.out.println("0. 🚪 Exit");
         System.out.println("-".repeat(75));
     }
 
     private void viewMenu() {
-        menuManager.displayMenu();
+        menu.displayMenu();
     }
 
     private void createNewOrder() {
@@ -555,23 +3092,28 @@ public class DineFlow {
         System.out.println("=".repeat(75));
 
         int tableNumber = getIntInput("Enter table number: ");
+        while (!TableSessionTracker.isValidTable(tableNumber)) {
+            System.out.println("❌ Table number must be between 1 and " + TableSessionTracker.MAX_TABLE_NUMBER);
+            tableNumber = getIntInput("Enter table number: ");
+        }
         System.out.print("Enter customer name: ");
         String customerName = scanner.nextLine();
 
-        OrderTicket order = new OrderTicket(tableNumber, customerName);
+        OrderTicket order = orderManager.createOrder(tableNumber, customerName);
 
         boolean addingItems = true;
         while (addingItems) {
-            menuManager.displayMenu();
+            menu.displayMenu();
+            showUpsellSuggestions(order);
             System.out.print("\nEnter item name (or 'done' to finish): ");
             String itemName = scanner.nextLine();
 
             if (itemName.equalsIgnoreCase("done")) {
                 addingItems = false;
             } else {
-                MenuEntry item = menuManager.findMenuItem(itemName);
+                MenuEntry item = menu.findMenuItem(itemName);
                 if (item != null) {
-                    order.addEntry(item);
+                    order.addEntry(item, inventory);
                 } else {
                     System.out.println("❌ Item not found in menu!");
                 }
@@ -610,6 +3152,22 @@ public class DineFlow {
         pressEnterToContinue();
     }
 
+    private void showUpsellSuggestions(OrderTicket order) {
+        List<MenuEntry> items = order.getItems();
+        if (items.isEmpty()) return;
+
+        List<String> names = new ArrayList<>();
+        for (String suggestion : orderManager.suggestItems(items, 3)) {
+            MenuEntry item = menu.findMenuItem(suggestion);
+            if (item != null && item.isAvailable() && !item.isSoldOut()) {
+                names.add(item.getItemName());
+            }
+        }
+        if (!names.isEmpty()) {
+            System.out.println("\n💡 Frequently ordered together: " + String.join(", ", names));
+        }
+    }
+
     private void viewAllOrders() {
         System.out.println("\n" + "=".repeat(75));
         System.out.println("📝 ALL ORDERS");
@@ -635,6 +3193,68 @@ public class DineFlow {
         }
     }
 
+    private void browseOrderHistory() {
+        System.out.println("\n" + "=".repeat(75));
+        System.out.println("🗓️  ORDER HISTORY (press Enter to skip a filter)");
+        System.out.println("=".repeat(75));
+
+        OrderQuery query = new OrderQuery();
+        try {
+            String from = promptLine("From (yyyy-MM-dd [HH:mm]): ");
+            if (!from.isEmpty()) query.from(OrderQuery.parseTime(from, false));
+            String to = promptLine("To (yyyy-MM-dd [HH:mm]): ");
+            if (!to.isEmpty()) query.to(OrderQuery.parseTime(to, true));
+            String status = promptLine("Status (PENDING/PREPARING/SERVED/BILLED/CANCELLED): ");
+            if (!status.isEmpty()) query.status(OrderStatus.fromName(status));
+            String table = promptLine("Table number: ");
+            if (!table.isEmpty()) query.table(Integer.parseInt(table));
+            String customer = promptLine("Customer name contains: ");
+            if (!customer.isEmpty()) query.customer(customer);
+            String minTotal = promptLine("Minimum total: ");
+            if (!minTotal.isEmpty()) query.minTotal(Double.parseDouble(minTotal));
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException and unknown status names
+            System.out.println("❌ Invalid filter: " + e.getMessage());
+            return;
+        }
+
+        int cursor = 0;
+        int shown = 0;
+        while (true) {
+            OrderQuery.Page page = orderManager.query(query, cursor);
+            if (shown == 0) printOrderHeader();
+            for (OrderTicket order : page.orders) {
+                printOrderRow(order);
+            }
+            shown += page.orders.size();
+            if (!page.hasMore()) break;
+            if (promptLine("-- " + shown + " shown, Enter for more or 'q' to stop: ").equalsIgnoreCase("q")) break;
+            cursor = page.nextCursor;
+        }
+        System.out.println(shown == 0 ? "No matching orders." : "-".repeat(75) + "\n" + shown + " order(s)");
+    }
+
+    static void printOrderHeader() {
+        System.out.printf("%-10s %-18s %-15s %-6s %-10s %s%n",
+            "Order ID", "Date & Time", "Customer", "Table", "Status", "Total");
+        System.out.println("-".repeat(75));
+    }
+
+    static void printOrderRow(OrderTicket order) {
+        System.out.printf("#%-9d %-18s %-15s %-6d %-10s ₹%.2f%n",
+            order.getOrderId(),
+            new SimpleDateFormat("dd-MMM-yy HH:mm").format(new Date(order.getOrderTime())),
+            order.getCustomerName(),
+            order.getTableNumber(),
+            order.getStatus(),
+            order.computeTotalWithTax());
+    }
+
+    private String promptLine(String prompt) {
+        System.out.print(prompt);
+        return scanner.nextLine().trim();
+    }
+
     private void updateOrderStatus() {
         System.out.println("\n" + "=".repeat(75));
         System.out.println("🔄 UPDATE ORDER STATUS");
@@ -645,21 +3265,75 @@ public class DineFlow {
         OrderTicket order = orderManager.findOrderById(orderId);
         if (order != null) {
             System.out.println("Current Status: " + order.getStatus());
-            System.out.println("\n1. PENDING  2. PREPARING  3. SERVED  4. BILLED");
+            System.out.println("\n1. PENDING  2. PREPARING  3. SERVED  4. BILLED  5. CANCELLED");
             int statusChoice = getIntInput("Select new status: ");
 
-            String[] statuses = {"PENDING", "PREPARING", "SERVED", "BILLED"};
-            if (statusChoice >= 1 && statusChoice <= 4) {
-                order.setStatus(statuses[statusChoice - 1]);
-                // Save changes to file
-                orderManager.saveOrders();
-                System.out.println("✅ Order status updated to: " + statuses[statusChoice - 1]);
+            OrderStatus[] statuses = OrderStatus.values();
+            if (statusChoice >= 1 && statusChoice <= statuses.length) {
+                OrderStatus newStatus = statuses[statusChoice - 1];
+                if (orderManager.updateStatus(order, newStatus)) {
+                    System.out.println("✅ Order status updated to: " + newStatus);
+                } else {
+                    System.out.println("❌ Cannot move order from " + order.getStatus() + " to " + newStatus);
+                }
             }
         } else {
             System.out.println("❌ Order not found!");
         }
     }
 
+    private void viewTableStatus() {
+        TableSessionTracker tables = orderManager.getTables();
+        printTableStatus(tables);
+
+        System.out.println("\n1. 🔗 Merge Tables  2. ✂️  Split Table  3. ⬅️  Back");
+        int choice = getIntInput("Enter choice: ");
+        try {
+            if (choice == 1) {
+                int secondary = getIntInput("Table to join: ");
+                int primary = getIntInput("Join onto table: ");
+                tables.merge(secondary, primary);
+                System.out.println("✅ Table " + secondary + " merged into table " + primary);
+            } else if (choice == 2) {
+                int table = getIntInput("Table to split off: ");
+                tables.split(table);
+                System.out.println("✅ Table " + table + " split off");
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+    }
+
+    static void printTableStatus(TableSessionTracker tables) {
+        System.out.println("\n" + "=".repeat(75));
+        System.out.println("🪑 TABLE STATUS");
+        System.out.println("=".repeat(75));
+
+        List<Integer> free = tables.getFreeTables();
+        System.out.println("Free tables: " + (free.isEmpty() ? "none" : free.stream()
+            .map(String::valueOf).collect(Collectors.joining(", "))));
+
+        List<Integer> busy = tables.getOccupiedTables();
+        if (busy.isEmpty()) return;
+
+        System.out.printf("%n%-8s %-13s %-12s %-10s %-10s %s%n", "Table", "Open Orders", "Seated", "Turnover", "Avg Stay", "Amount Owed");
+        System.out.println("-".repeat(75));
+        long now = System.currentTimeMillis();
+        for (int table : busy) {
+            int primary = tables.getMergedInto(table);
+            if (primary != 0) {
+                System.out.printf("%-8d merged into table %d%n", table, primary);
+                continue;
+            }
+            long since = tables.getSeatedSince(table);
+            int turnovers = tables.getTurnovers(table);
+            System.out.printf("%-8d %-13d %-12s %-10d %-10s ₹%.2f%n", table, tables.getOpenOrders(table),
+                since > 0 ? ((now - since) / 60000) + " min" : "-", turnovers,
+                turnovers > 0 ? String.format("%.0f min", tables.getAverageSeatMinutes(table)) : "-",
+                tables.getAmountOwed(table));
+        }
+    }
+
     private void manageMenu() {
         System.out.println("\n" + "=".repeat(75));
         System.out.println("⚙️  MENU MANAGEMENT");
@@ -668,7 +3342,12 @@ public class DineFlow {
         System.out.println("2. 💰 Update Price");
         System.out.println("3. 🔄 Toggle Availability");
         System.out.println("4. 🗑️  Remove Item");
-        System.out.println("5. ⬅️  Back");
+        System.out.println("5. 📥 Import Items (CSV/JSON; existing items get the new price/availability)");
+        System.out.println("6. 📤 Export Items (CSV/JSON)");
+        System.out.println("7. 💰 Bulk Price Update (CSV: name,price)");
+        System.out.println("8. 🔄 Bulk Availability Update (CSV: name,available)");
+        System.out.println("9. 📦 Inventory (Stock & Recipes)");
+        System.out.println("10. ⬅️  Back");
 
         int choice = getIntInput("Enter choice: ");
 
@@ -680,18 +3359,128 @@ public class DineFlow {
                 System.out.print("Enter item name: ");
                 String updateItem = scanner.nextLine();
                 double newPrice = getDoubleInput("Enter new price: ");
-                menuManager.updateMenuItem(updateItem, newPrice);
+                menu.updateMenuItem(updateItem, newPrice);
                 break;
             case 3:
                 System.out.print("Enter item name: ");
                 String toggleItem = scanner.nextLine();
-                menuManager.toggleAvailability(toggleItem);
+                menu.toggleAvailability(toggleItem);
                 break;
             case 4:
                 System.out.print("Enter item name to remove: ");
                 String removeItem = scanner.nextLine();
                 menuManager.removeMenuItem(removeItem);
                 break;
+            case 5:
+                importMenuItems();
+                break;
+            case 6:
+                exportMenuItems();
+                break;
+            case 7:
+            case 8:
+                bulkUpdateMenu(choice == 7);
+                break;
+            case 9:
+                manageInventory();
+                break;
+        }
+    }
+
+    private void manageInventory() {
+        printStockLevels(inventory);
+
+        System.out.println("\n1. 📋 Set Stock (stock-take)  2. 🚚 Receive Delivery  3. 🧾 Set Recipe  4. ⬅️  Back");
+        int choice = getIntInput("Enter choice: ");
+        try {
+            if (choice == 1 || choice == 2) {
+                String name = promptLine("Item or ingredient name: ");
+                int qty = getIntInput(choice == 1 ? "Units in stock: " : "Units received: ");
+                if (choice == 1) inventory.setStock(name, qty);
+                else inventory.addStock(name, qty);
+            } else if (choice == 3) {
+                String item = promptLine("Menu item: ");
+                String recipe = promptLine("Ingredients per serving (e.g. paneer=2, onion=1; empty to remove): ");
+                inventory.setRecipe(item, InventoryManager.parseRecipe(recipe));
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+    }
+
+    static void printStockLevels(InventoryManager inventory) {
+        System.out.println("\n" + "=".repeat(75));
+        System.out.println("📦 STOCK LEVELS (untracked items are unlimited)");
+        System.out.println("=".repeat(75));
+
+        Map<String, Integer> levels = inventory.getStockLevels();
+        if (levels.isEmpty()) {
+            System.out.println("No stock is tracked.");
+        } else {
+            System.out.printf("%-30s %10s%n", "Item / Ingredient", "In Stock");
+            System.out.println("-".repeat(75));
+            levels.forEach((name, units) ->
+                System.out.printf("%-30s %10d%s%n", name, units, units == 0 ? "  ⚠️ sold out" : ""));
+        }
+
+        Map<String, Map<String, Integer>> recipes = inventory.getRecipes();
+        if (!recipes.isEmpty()) {
+            System.out.println("\n🧾 Recipes (per serving):");
+            recipes.forEach((item, recipe) -> System.out.println("   " + item + ": " + recipe));
+        }
+    }
+
+    private void importMenuItems() {
+        System.out.print("Enter file to import (.csv or .json): ");
+        String path = scanner.nextLine().trim();
+        long start = System.nanoTime();
+        try {
+            MenuImportExport.ImportResult result = MenuImportExport.importItems(path);
+            if (!result.errors.isEmpty()) {
+                System.out.println("✗ Import rejected, " + result.errors.size() + " invalid record(s):");
+                result.errors.stream().limit(10).forEach(e -> System.out.println("   - " + e));
+                return;
+            }
+            if (menuManager.importMenuItems(result.items)) {
+                System.out.printf("✓ Imported %d items in %d ms%n",
+                    result.items.size(), (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (IOException e) {
+            System.out.println("✗ Could not import: " + e.getMessage());
+        }
+    }
+
+    private void exportMenuItems() {
+        System.out.print("Enter file to export to (.csv or .json): ");
+        String path = scanner.nextLine().trim();
+        try {
+            List<MenuEntry> items = menuManager.getAllItems();
+            MenuImportExport.exportItems(items, path);
+            System.out.println("✓ Exported " + items.size() + " items to " + path);
+        } catch (IOException e) {
+            System.out.println("✗ Could not export: " + e.getMessage());
+        }
+    }
+
+    // Bulk updates always apply to the central menu
+    private void bulkUpdateMenu(boolean prices) {
+        System.out.print("Enter CSV file: ");
+        String path = scanner.nextLine().trim();
+        List<String> errors = new ArrayList<>();
+        try {
+            if (prices) {
+                Map<String, Double> updates = MenuImportExport.readPriceUpdates(path, errors);
+                if (errors.isEmpty()) menuManager.updatePrices(updates);
+            } else {
+                Map<String, Boolean> updates = MenuImportExport.readAvailabilityUpdates(path, errors);
+                if (errors.isEmpty()) menuManager.updateAvailability(updates);
+            }
+            if (!errors.isEmpty()) {
+                System.out.println("✗ Update rejected, " + errors.size() + " invalid line(s):");
+                errors.stream().limit(10).forEach(e -> System.out.println("   - " + e));
+            }
+        } catch (IOException e) {
+            System.out.println("✗ Could not read file: " + e.getMessage());
         }
     }
 
@@ -726,53 +3515,86 @@ public class DineFlow {
     }
 
     private void generateReports() {
+        printReport(orderManager);
+    }
+
+    static void printReport(OrderManager orderManager) {
         System.out.println("\n" + "=".repeat(75));
         System.out.println("📊 REPORTS & ANALYTICS");
         System.out.println("=".repeat(75));
 
-        ArrayList<OrderTicket> orders = orderManager.getAllOrders();
-
-        System.out.printf("📦 Total Orders: %d%n", orders.size());
+        printSummary(orderManager.summarize());
 
-        double totalRevenue = 0.0;
-        int pendingOrders = 0;
-        int completedOrders = 0;
-
-        for (OrderTicket order : orders) {
-            totalRevenue += order.computeTotalWithTax();
-            if (order.getStatus().equals("BILLED")) {
-                completedOrders++;
-            } else {
-                pendingOrders++;
+        // Table utilization
+        List<int[]> busiest = orderManager.getTables().getBusiestTables(5);
+        if (!busiest.isEmpty()) {
+            System.out.println("\n🪑 Table Utilization:");
+            TableSessionTracker tables = orderManager.getTables();
+            for (int[] entry : busiest) {
+                int turnovers = tables.getTurnovers(entry[0]);
+                System.out.printf("   Table %d: %d orders%s%n", entry[0], entry[1], turnovers == 0 ? ""
+                    : String.format(", %d turnovers, avg stay %.0f min", turnovers, tables.getAverageSeatMinutes(entry[0])));
             }
         }
 
-        System.out.printf("💰 Total Revenue: ₹%.2f%n", totalRevenue);
+        System.out.println("=".repeat(75));
+    }
 
-        if (!orders.isEmpty()) {
-            System.out.printf("📈 Average Order Value: ₹%.2f%n", totalRevenue / orders.size());
-        }
+    private static void printSummary(OrderSummary summary) {
+        System.out.printf("📦 Total Orders: %d%n", summary.getOrderCount());
+        System.out.printf("💰 Total Revenue: ₹%.2f%n", summary.getTotalRevenue());
 
-        System.out.printf("✅ Completed Orders: %d%n", completedOrders);
-        System.out.printf("⏳ Pending Orders: %d%n", pendingOrders);
+        if (summary.getOrderCount() > 0) {
+            System.out.printf("📈 Average Order Value: ₹%.2f%n", summary.getAverageOrderValue());
+        }
 
-        // Table utilization
-        Map<Integer, Integer> tableOrders = new HashMap<>();
-        for (OrderTicket order : orders) {
-            tableOrders.put(order.getTableNumber(),
-                tableOrders.getOrDefault(order.getTableNumber(), 0) + 1);
+        System.out.printf("✅ Completed Orders: %d%n", summary.getCompletedOrders());
+        System.out.printf("⏳ Pending Orders: %d%n", summary.getPendingOrders());
+        if (summary.getCancelledOrders() > 0) {
+            System.out.printf("❌ Cancelled Orders: %d%n", summary.getCancelledOrders());
         }
+    }
 
-        if (!tableOrders.isEmpty()) {
-            System.out.println("\n🪑 Table Utilization:");
-            tableOrders.entrySet().stream()
-                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed())
-                .limit(5)
-                .forEach(entry ->
-                    System.out.printf("   Table %d: %d orders%n", entry.getKey(), entry.getValue())
-                );
+    /**
+     * Chain-wide report: each outlet's shard is summarized on its own
+     * (in parallel) and only the small per-outlet summaries are merged.
+     * Shard 0 (orders_data.ser, the history from before outlets) is listed as MAIN.
+     */
+    static void printChainReport(OutletRegistry registry) {
+        System.out.println("\n" + "=".repeat(75));
+        System.out.println("🏬 CHAIN REPORT");
+        System.out.println("=".repeat(75));
+
+        List<String> labels = new ArrayList<>();
+        List<Supplier<OrderManager>> shards = new ArrayList<>();
+        if (OrderManager.hasMainStore()) {
+            labels.add("MAIN");
+            shards.add(OrderManager::new);
         }
+        for (Outlet o : registry.getOutlets()) {
+            labels.add(o.getCode());
+            shards.add(() -> new OrderManager(o));
+        }
+        if (shards.isEmpty()) {
+            System.out.println("No orders or outlets yet.");
+            return;
+        }
+
+        List<OrderSummary> summaries = shards.parallelStream()
+            .map(shard -> shard.get().summarize())
+            .collect(Collectors.toList());
 
+        System.out.printf("%-12s %-10s %-12s %-10s %s%n", "Outlet", "Orders", "Completed", "Pending", "Revenue");
+        System.out.println("-".repeat(75));
+        OrderSummary total = new OrderSummary();
+        for (int i = 0; i < shards.size(); i++) {
+            OrderSummary s = summaries.get(i);
+            System.out.printf("%-12s %-10d %-12d %-10d ₹%.2f%n", labels.get(i),
+                s.getOrderCount(), s.getCompletedOrders(), s.getPendingOrders(), s.getTotalRevenue());
+            total.merge(s);
+        }
+        System.out.println("-".repeat(75));
+        printSummary(total);
         System.out.println("=".repeat(75));
     }
 
@@ -784,7 +3606,7 @@ public class DineFlow {
         System.out.print("Enter item name to search: ");
         String searchTerm = scanner.nextLine().toLowerCase();
 
-        List<MenuEntry> results = menuManager.getAllItems().stream()
+        List<MenuEntry> results = menu.getAllItems().stream()
             .filter(item -> item.getItemName().toLowerCase().contains(searchTerm))
             .collect(Collectors.toList());
 
@@ -804,7 +3626,7 @@ public class DineFlow {
         System.out.println("⭐ MOST POPULAR ITEMS");
         System.out.println("=".repeat(75));
 
-        List<MenuEntry> popularItems = menuManager.getMostPopularItems(5);
+        List<MenuEntry> popularItems = menu.getMostPopularItems(5);
 
         if (popularItems.isEmpty() || popularItems.get(0).getPopularity() == 0) {
             System.out.println("No popularity data available yet. Create some orders first!");
@@ -871,8 +3693,80 @@ public class DineFlow {
         }
     }
 
+    /**
+     * Runs a command script with output buffered instead of written line by
+     * line to the console. Returns the number of failed lines.
+     */
+    public int runBatch(BufferedReader script) throws IOException {
+        PrintStream console = System.out;
+        PrintStream buffered = new PrintStream(new BufferedOutputStream(
+            new FileOutputStream(FileDescriptor.out), 1 << 16), false, StandardCharsets.UTF_8);
+        System.setOut(buffered);
+        try {
+            return new BatchRunner(menuManager, menu, orderManager, inventory).run(script);
+        } finally {
+            PersistenceScheduler scheduler = PersistenceScheduler.getDefault();
+            scheduler.shutdown();
+            // Shows how many saves the write-behind coalesced
+            System.out.printf("💾 %d changes saved in %d file writes%n",
+                scheduler.getChangeCount(), scheduler.getWriteCount());
+            buffered.flush();
+            System.setOut(console);
+        }
+    }
+
+    // Usage: java DineFlow [--outlet CODE | --register-outlet CODE] [--batch FILE|- | --startup-time] | --chain-report
     public static void main(String[] args) {
-        DineFlow system = new DineFlow();
-        system.start();
+        if (args.length >= 1 && args[0].equals("--chain-report")) {
+            printChainReport(new OutletRegistry());
+            return;
+        }
+
+        Outlet outlet = null;
+        String batchFile = null;
+        boolean startupTime = false;
+        for (int i = 0; i < args.length; i++) {
+            if ((args[i].equals("--outlet") || args[i].equals("--register-outlet")) && i + 1 < args.length) {
+                OutletRegistry registry = new OutletRegistry();
+                String code = args[++i];
+                try {
+                    outlet = args[i - 1].equals("--outlet") ? registry.find(code) : registry.register(code);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("✗ " + e.getMessage() + " (use letters, digits, '_' or '-')");
+                    System.exit(2);
+                }
+                if (outlet == null) {
+                    System.err.println("✗ Unknown outlet: " + code.trim().toUpperCase()
+                        + (registry.getCodes().isEmpty() ? "" : " (registered: " + String.join(", ", registry.getCodes()) + ")"));
+                    System.err.println("  To add a new outlet, run once with --register-outlet " + code.trim().toUpperCase());
+                    System.exit(2);
+                }
+            } else if (args[i].equals("--batch") && i + 1 < args.length) {
+                batchFile = args[++i];
+            } else if (args[i].equals("--startup-time")) {
+                startupTime = true;
+            }
+        }
+        DineFlow system = new DineFlow(outlet);
+
+        if (startupTime) {
+            system.printStartupTimes();
+            PersistenceScheduler.getDefault().shutdown();
+            return;
+        }
+
+        if (batchFile == null) {
+            system.start();
+            return;
+        }
+        InputStream in = System.in;
+        try {
+            if (!batchFile.equals("-")) in = new FileInputStream(batchFile);
+            int errors = system.runBatch(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            if (errors > 0) System.exit(1);
+        } catch (IOException e) {
+            System.err.println("✗ Could not read batch script: " + e.getMessage());
+            System.exit(2);
+        }
     }
 }